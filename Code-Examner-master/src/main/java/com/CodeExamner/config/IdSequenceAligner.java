@@ -0,0 +1,67 @@
+// config/IdSequenceAligner.java
+package com.CodeExamner.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Submission、SubmissionDetail、TestCase 的主键由自增改为按段预取后，MySQL 上由单行表（next_val 列）模拟序列，
+ * ddl-auto 新建这些表时从 1 开始，会与已有数据的 ID 冲突。启动时把每个序列推进到已有最大 ID 之后。
+ *
+ * Hibernate 的 pooled 优化器从序列取到 v 时使用 (v - allocationSize, v] 这一段，因此 next_val 至少要是
+ * max(id) + allocationSize。只会往大调，多个节点同时启动也不会回退。
+ * 依赖 EntityManagerFactory，保证在建表之后、处理任何请求之前执行。
+ */
+@Slf4j
+@Component
+public class IdSequenceAligner implements InitializingBean {
+
+    // allocationSize 需与实体上 @SequenceGenerator 的一致
+    private static final List<Sequence> SEQUENCES = List.of(
+            new Sequence("submission_seq", "submissions", 50),
+            new Sequence("submission_detail_seq", "submission_details", 500),
+            new Sequence("test_case_seq", "test_cases", 50));
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterPropertiesSet() {
+        for (Sequence sequence : SEQUENCES) {
+            try {
+                align(sequence.table(), sequence.entityTable(), sequence.allocationSize());
+            } catch (Exception e) {
+                // 数据库原生支持序列时不存在对应的表，需要手动执行 ALTER SEQUENCE
+                log.warn("无法校正主键序列 {}: {}", sequence.table(), e.getMessage());
+            }
+        }
+    }
+
+    private void align(String sequenceTable, String entityTable, int allocationSize) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + entityTable, Long.class);
+        if (maxId == null || maxId == 0) {
+            return;
+        }
+        long target = maxId + allocationSize;
+        List<Long> current = jdbcTemplate.queryForList("SELECT next_val FROM " + sequenceTable, Long.class);
+        if (current.isEmpty()) {
+            jdbcTemplate.update("INSERT INTO " + sequenceTable + " (next_val) VALUES (?)", target);
+        } else if (jdbcTemplate.update("UPDATE " + sequenceTable + " SET next_val = ? WHERE next_val < ?",
+                target, target) == 0) {
+            return;
+        }
+        log.info("主键序列 {} 已推进到 {}（{} 当前最大 ID 为 {}）", sequenceTable, target, entityTable, maxId);
+    }
+
+    private record Sequence(String table, String entityTable, int allocationSize) {
+    }
+}
@@ -0,0 +1,56 @@
+// config/StatusColumnMigrator.java
+package com.CodeExamner.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 把 submissions.status、submission_details.status 从 MySQL 原生 enum 改为 varchar(32)。
+ *
+ * 旧版本由 Hibernate 按当时的 JudgeStatus 建成 enum('ACCEPTED', ...) 列，ddl-auto: update 不会修改已有列的类型，
+ * 之后新增的 SKIPPED、WAITING、SYSTEM_ERROR 写入时会报 "Data truncated for column 'status'"。
+ * 启动时检查列类型，仍是 enum 时执行 ALTER TABLE ... MODIFY；已是 varchar 的库不做任何修改。
+ * 依赖 EntityManagerFactory，保证在建表之后、处理任何请求之前执行。
+ */
+@Slf4j
+@Component
+public class StatusColumnMigrator implements InitializingBean {
+
+    private static final List<String> TABLES = List.of("submissions", "submission_details");
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterPropertiesSet() {
+        for (String table : TABLES) {
+            try {
+                migrate(table);
+            } catch (Exception e) {
+                // 非 MySQL 数据库没有 information_schema 或不使用原生 enum
+                log.warn("无法检查 {}.status 的列类型: {}", table, e.getMessage());
+            }
+        }
+    }
+
+    private void migrate(String table) {
+        List<String> types = jdbcTemplate.queryForList(
+                "SELECT DATA_TYPE FROM information_schema.COLUMNS"
+                        + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = 'status'",
+                String.class, table);
+        if (types.isEmpty() || !"enum".equalsIgnoreCase(types.get(0))) {
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE " + table + " MODIFY status varchar(32)");
+        log.info("{}.status 已由 enum 改为 varchar(32)", table);
+    }
+}
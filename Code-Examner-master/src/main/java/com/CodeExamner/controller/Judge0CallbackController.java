@@ -0,0 +1,50 @@
+package com.CodeExamner.controller;
+
+import com.CodeExamner.judge0.Judge0Result;
+import com.CodeExamner.judge0.Judge0ResultPoller;
+import com.CodeExamner.judge0.Judge0ResultReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 接收 Judge0 评测结束后的 PUT 回调（地址由 app.judge0.callback-url 配置）。
+ * 每个评测任务的回调地址都带有一次性密钥，校验通过后交给结果轮询器做幂等回写。
+ * 请求体由 Judge0ResultReader 流式解析，超长的输出只保留开头部分。
+ */
+@Slf4j
+@RestController
+@RequestMapping("/judge")
+public class Judge0CallbackController {
+
+    @Autowired
+    private Judge0ResultPoller judge0ResultPoller;
+
+    @Autowired
+    private Judge0ResultReader judge0ResultReader;
+
+    @PutMapping("/callback")
+    public ResponseEntity<?> receiveCallback(@RequestParam("secret") String secret, InputStream body) {
+        Judge0Result result;
+        try {
+            // Judge0 的回调体固定使用 base64 编码文本字段
+            result = judge0ResultReader.readResult(body, true);
+        } catch (IOException | IllegalStateException e) {
+            log.warn("解析Judge0回调失败: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        if (result.getToken() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        if (!judge0ResultPoller.acceptCallback(result.getToken(), secret, result)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok().build();
+    }
+}
@@ -40,6 +40,13 @@ public class ProblemController {
         problem.setTimeLimit(request.getTimeLimit());
         problem.setMemoryLimit(request.getMemoryLimit());
         problem.setIsPublic(request.getIsPublic());
+        problem.setFailFast(request.getFailFast());
+        if (request.getOutputCompareMode() != null) {
+            problem.setOutputCompareMode(request.getOutputCompareMode());
+        }
+        if (request.getFloatEpsilon() != null) {
+            problem.setFloatEpsilon(request.getFloatEpsilon());
+        }
 
         Problem created = problemService.createProblem(problem);
         return ResponseEntity.ok(convertToResponse(created));
@@ -61,6 +68,13 @@ public class ProblemController {
         problem.setTimeLimit(request.getTimeLimit());
         problem.setMemoryLimit(request.getMemoryLimit());
         problem.setIsPublic(request.getIsPublic());
+        problem.setFailFast(request.getFailFast());
+        if (request.getOutputCompareMode() != null) {
+            problem.setOutputCompareMode(request.getOutputCompareMode());
+        }
+        if (request.getFloatEpsilon() != null) {
+            problem.setFloatEpsilon(request.getFloatEpsilon());
+        }
 
         Problem updated = problemService.updateProblem(id, problem);
         return ResponseEntity.ok(convertToResponse(updated));
@@ -166,6 +180,9 @@ public class ProblemController {
         }
         response.setCreateTime(problem.getCreateTime());
         response.setIsPublic(problem.getIsPublic());
+        response.setFailFast(problem.getFailFast());
+        response.setOutputCompareMode(problem.getOutputCompareMode());
+        response.setFloatEpsilon(problem.getFloatEpsilon());
         return response;
     }
 }
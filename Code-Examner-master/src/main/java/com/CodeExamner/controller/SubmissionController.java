@@ -2,17 +2,25 @@
 package com.CodeExamner.controller;
 
 import com.CodeExamner.dto.request.SubmissionRequest;
+import com.CodeExamner.dto.response.SubmissionEvent;
 import com.CodeExamner.dto.response.SubmissionResponse;
 import com.CodeExamner.entity.Submission;
+import com.CodeExamner.security.StreamTicketService;
+import com.CodeExamner.service.SubmissionEventService;
 import com.CodeExamner.service.SubmissionService;
+import com.CodeExamner.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
 
 @RestController
 @RequestMapping("/submissions")
@@ -21,6 +29,15 @@ public class SubmissionController {
     @Autowired
     private SubmissionService submissionService;
 
+    @Autowired
+    private SubmissionEventService submissionEventService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private StreamTicketService streamTicketService;
+
     @PostMapping
     public ResponseEntity<SubmissionResponse> submitCode(@Valid @RequestBody SubmissionRequest request) {
         Submission submission = new Submission();
@@ -43,6 +60,32 @@ public class SubmissionController {
         return ResponseEntity.ok(convertToResponse(created));
     }
 
+    /**
+     * 用 JWT 换取一次性的推送票据，在有效期内作为 ticket 查询参数连接 GET /submissions/stream。
+     * 票据建立连接后即作废，EventSource 断线重连前需重新申请。
+     */
+    @PostMapping("/stream/ticket")
+    public ResponseEntity<Map<String, Object>> issueStreamTicket() {
+        String ticket = streamTicketService.issue(userService.getCurrentUser().getUsername());
+        return ResponseEntity.ok(Map.of("ticket", ticket, "expiresInMs", streamTicketService.getTtlMs()));
+    }
+
+    /**
+     * 以 SSE 推送当前用户所有提交的评测进度（progress）和最终结果（result），代替轮询 GET /submissions/{id}。
+     * 浏览器的 EventSource 无法设置请求头，凭据使用 POST /submissions/stream/ticket 换取的一次性票据（ticket 查询参数），
+     * 不接受在 URL 中携带 JWT。
+     * 指定 submissionId 时先推送该提交的当前状态（snapshot），避免订阅前已出的结果丢失。
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSubmissionEvents(@RequestParam(required = false) Long submissionId) {
+        SubmissionEvent initial = null;
+        if (submissionId != null) {
+            Submission submission = submissionService.getSubmissionById(submissionId);
+            initial = SubmissionEvent.of(SubmissionEvent.SNAPSHOT, submission, submission.getDetails());
+        }
+        return submissionEventService.subscribe(userService.getCurrentUser().getId(), initial);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<SubmissionResponse> getSubmission(@PathVariable Long id) {
         Submission submission = submissionService.getSubmissionById(id);
@@ -2,6 +2,7 @@
 package com.CodeExamner.dto.request;
 
 import com.CodeExamner.entity.enums.Difficulty;
+import com.CodeExamner.entity.enums.OutputCompareMode;
 import com.CodeExamner.entity.enums.ProblemType;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -34,4 +35,11 @@ public class ProblemCreateRequest {
     private Integer memoryLimit;
 
     private Boolean isPublic = false;
+
+    private Boolean failFast = false;
+
+    // 输出比对方式，不填时忽略行尾空白和末尾空行
+    private OutputCompareMode outputCompareMode;
+
+    private Double floatEpsilon;
 }
@@ -2,6 +2,7 @@
 package com.CodeExamner.dto.response;
 
 import com.CodeExamner.entity.enums.Difficulty;
+import com.CodeExamner.entity.enums.OutputCompareMode;
 import com.CodeExamner.entity.enums.ProblemType;
 import lombok.Data;
 
@@ -22,4 +23,7 @@ public class ProblemResponse {
     private String creatorName;
     private LocalDateTime createTime;
     private Boolean isPublic;
+    private Boolean failFast;
+    private OutputCompareMode outputCompareMode;
+    private Double floatEpsilon;
 }
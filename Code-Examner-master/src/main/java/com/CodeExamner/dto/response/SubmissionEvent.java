@@ -0,0 +1,89 @@
+// dto/response/SubmissionEvent.java
+package com.CodeExamner.dto.response;
+
+import com.CodeExamner.entity.Submission;
+import com.CodeExamner.entity.SubmissionDetail;
+import com.CodeExamner.entity.enums.JudgeStatus;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 推送给客户端的提交评测进度。
+ * - progress：部分测试点出结果，details 为本次出结果的测试点；
+ * - result：全部测试点完成，带最终状态和得分；
+ * - snapshot：订阅时指定了 submissionId，返回该提交的当前状态和全部测试点。
+ */
+@Data
+public class SubmissionEvent {
+    public static final String PROGRESS = "progress";
+    public static final String RESULT = "result";
+    public static final String SNAPSHOT = "snapshot";
+
+    private String type;
+    private Long submissionId;
+    // 用于把事件路由到提交者的连接
+    private Long studentId;
+    private JudgeStatus status;
+    private Integer score;
+    private Integer timeUsed;
+    private Integer memoryUsed;
+    // 已出结果的测试点数 / 测试点总数
+    private Integer judgedCases;
+    private Integer totalCases;
+    private List<CaseProgress> details = new ArrayList<>();
+
+    @Data
+    public static class CaseProgress {
+        private Long testCaseId;
+        private JudgeStatus status;
+        private Integer timeUsed;
+        private Integer memoryUsed;
+    }
+
+    /**
+     * 结果尚未写库时的进度事件，已出结果的测试点数由调用方给出。
+     */
+    public static SubmissionEvent progress(Long submissionId, Long studentId, int judgedCases, int totalCases,
+                                           SubmissionDetail detail) {
+        SubmissionEvent event = new SubmissionEvent();
+        event.setType(PROGRESS);
+        event.setSubmissionId(submissionId);
+        event.setStudentId(studentId);
+        event.setStatus(JudgeStatus.JUDGING);
+        event.setJudgedCases(judgedCases);
+        event.setTotalCases(totalCases);
+        event.getDetails().add(toProgress(detail));
+        return event;
+    }
+
+    public static SubmissionEvent of(String type, Submission submission, Collection<SubmissionDetail> details) {
+        SubmissionEvent event = new SubmissionEvent();
+        event.setType(type);
+        event.setSubmissionId(submission.getId());
+        event.setStudentId(submission.getStudent() != null ? submission.getStudent().getId() : null);
+        event.setStatus(submission.getStatus());
+        event.setScore(submission.getScore());
+        event.setTimeUsed(submission.getTimeUsed());
+        event.setMemoryUsed(submission.getMemoryUsed());
+        event.setTotalCases(submission.getDetails().size());
+        event.setJudgedCases((int) submission.getDetails().stream()
+                .filter(d -> d.getStatus() != JudgeStatus.PENDING && d.getStatus() != JudgeStatus.JUDGING)
+                .count());
+        for (SubmissionDetail detail : details) {
+            event.getDetails().add(toProgress(detail));
+        }
+        return event;
+    }
+
+    private static CaseProgress toProgress(SubmissionDetail detail) {
+        CaseProgress progress = new CaseProgress();
+        progress.setTestCaseId(detail.getTestCase().getId());
+        progress.setStatus(detail.getStatus());
+        progress.setTimeUsed(detail.getTimeUsed());
+        progress.setMemoryUsed(detail.getMemoryUsed());
+        return progress;
+    }
+}
@@ -2,6 +2,7 @@
 package com.CodeExamner.entity;
 
 import com.CodeExamner.entity.enums.Difficulty;
+import com.CodeExamner.entity.enums.OutputCompareMode;
 import com.CodeExamner.entity.enums.ProblemType;
 import jakarta.persistence.*;
 import lombok.Data;
@@ -48,6 +49,19 @@ public class Problem {
     private LocalDateTime createTime;
     private Boolean isPublic = false;
 
+    // 快速失败：任一测试点未通过即停止评测剩余测试点（得分本就按全部通过计算）
+    private Boolean failFast = false;
+
+    // 输出比对方式，评测服务只负责运行，输出是否正确在本地按该方式比对
+    @Enumerated(EnumType.STRING)
+    private OutputCompareMode outputCompareMode = OutputCompareMode.IGNORE_TRAILING_WHITESPACE;
+
+    // FLOAT_EPSILON 模式下允许的绝对或相对误差
+    private Double floatEpsilon = 1e-6;
+
+    // 测试用例版本号，测试用例增删改时递增，用于让评测结果缓存失效
+    private Integer testCaseVersion = 0;
+
     @OneToMany(mappedBy = "problem", cascade = CascadeType.ALL)
     private List<TestCase> testCases = new ArrayList<>();
 
@@ -10,10 +10,16 @@ import java.util.List;
 
 @Data
 @Entity
-@Table(name = "submissions")
+@Table(name = "submissions", indexes = {
+        @Index(name = "idx_submissions_verdict_key", columnList = "verdictKey"),
+        @Index(name = "idx_submissions_status_lease", columnList = "status, leaseUntil")
+})
 public class Submission {
+    // 自增主键要等插入后才知道 ID，Hibernate 无法对插入做 JDBC 批处理；改为按段预取 ID
+    // （MySQL 没有序列，由同名的单行表模拟，见 IdSequenceAligner）
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "submission_seq")
+    @SequenceGenerator(name = "submission_seq", sequenceName = "submission_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -33,7 +39,9 @@ public class Submission {
 
     private String language = "java"; // 编程语言
 
+    // 按字符串存为 varchar 而不是 MySQL 原生 enum：新增状态时不需要修改列类型（见 StatusColumnMigrator）
     @Enumerated(EnumType.STRING)
+    @Column(columnDefinition = "varchar(32)")
     private JudgeStatus status = JudgeStatus.PENDING;
 
     private Integer score; // 得分
@@ -42,6 +50,16 @@ public class Submission {
 
     private LocalDateTime submitTime;
 
+    // 评测结果缓存键：hash(规范化源码, 语言, 题目测试用例版本, 时间/内存限制)
+    @Column(length = 64)
+    private String verdictKey;
+
+    // 评测租约：负责评测的节点在此之前有效，过期仍未出结果时由其他节点的巡检任务接管重新评测
+    private LocalDateTime leaseUntil;
+
+    // 被巡检任务接管重新评测的次数，超过上限后记为 SYSTEM_ERROR
+    private Integer retryCount = 0;
+
     @OneToMany(mappedBy = "submission", cascade = CascadeType.ALL)
     private List<SubmissionDetail> details = new ArrayList<>();
 
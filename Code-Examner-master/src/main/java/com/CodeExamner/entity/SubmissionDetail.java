@@ -5,12 +5,17 @@ import com.CodeExamner.entity.enums.JudgeStatus;
 import jakarta.persistence.*;
 import lombok.Data;
 
+import java.time.LocalDateTime;
+
 @Data
 @Entity
 @Table(name = "submission_details")
 public class SubmissionDetail {
+    // 每个提交对应一批测试点详情，ID 按段预取，插入可以合并为 JDBC 批处理；
+    // 每个提交就要用掉几十个 ID，段取得大一些，避免频繁提交序列表的事务
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "submission_detail_seq")
+    @SequenceGenerator(name = "submission_detail_seq", sequenceName = "submission_detail_seq", allocationSize = 500)
     private Long id;
 
     @ManyToOne
@@ -21,7 +26,9 @@ public class SubmissionDetail {
     @JoinColumn(name = "test_case_id", nullable = false)
     private TestCase testCase;
 
+    // 按字符串存为 varchar 而不是 MySQL 原生 enum：新增状态时不需要修改列类型（见 StatusColumnMigrator）
     @Enumerated(EnumType.STRING)
+    @Column(columnDefinition = "varchar(32)")
     private JudgeStatus status;
 
     private Integer timeUsed;
@@ -32,4 +39,18 @@ public class SubmissionDetail {
 
     @Column(columnDefinition = "TEXT")
     private String errorMessage;
+
+    // 评测任务的 token（一次编译多次运行时同一批测试点共用），重启后据此恢复结果收集和轮询
+    @Column(length = 64)
+    private String judgeToken;
+
+    // 是否属于一次编译、多次运行的整体任务（结果需按测试点拆分）
+    private Boolean compileOnceRun;
+
+    // 分发该评测任务的节点（app.judge.node-id），重启时只恢复本节点的任务，其余由租约过期后的接管处理
+    @Column(length = 64)
+    private String judgeNode;
+
+    // 分发时间，超过接管时限的任务不再恢复轮询，直接重新评测
+    private LocalDateTime dispatchedAt;
 }
\ No newline at end of file
@@ -8,19 +8,33 @@ import lombok.Data;
 @Entity
 @Table(name = "test_cases")
 public class TestCase {
+    // 整体替换测试用例时一次插入上千行，ID 按段预取以便批量插入
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "test_case_seq")
+    @SequenceGenerator(name = "test_case_seq", sequenceName = "test_case_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
     @JoinColumn(name = "problem_id", nullable = false)
     private Problem problem;
 
+    // 旧数据的输入 / 期望输出；写入测试数据存储后置空，内容改由下面的哈希引用
     @Column(columnDefinition = "TEXT")
     private String input;
 
     @Column(columnDefinition = "TEXT")
     private String expectedOutput;
 
+    // 测试数据存储中的内容哈希（SHA-256）和原始字节数
+    @Column(length = 64)
+    private String inputHash;
+
+    private Long inputSize;
+
+    @Column(length = 64)
+    private String expectedOutputHash;
+
+    private Long expectedOutputSize;
+
     private Boolean isSample = false; // 是否是样例测试用例
 }
\ No newline at end of file
@@ -9,5 +9,8 @@ public enum JudgeStatus {
     TIME_LIMIT_EXCEEDED,    // 时间超限
     MEMORY_LIMIT_EXCEEDED,  // 内存超限
     RUNTIME_ERROR,          // 运行时错误
-    COMPILATION_ERROR       // 编译错误
+    COMPILATION_ERROR,      // 编译错误
+    SKIPPED,                // 未执行（快速失败模式下前面的测试点已失败）
+    WAITING,                // 评测服务不可用（熔断中），暂存等待恢复后自动评测
+    SYSTEM_ERROR            // 评测系统故障，多次重新评测仍未得到结果
 }
\ No newline at end of file
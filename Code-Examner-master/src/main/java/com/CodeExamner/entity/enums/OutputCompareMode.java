@@ -0,0 +1,9 @@
+// entity/enums/OutputCompareMode.java
+package com.CodeExamner.entity.enums;
+
+public enum OutputCompareMode {
+    EXACT,                      // 逐字符完全一致
+    IGNORE_TRAILING_WHITESPACE, // 忽略每行行尾空白和末尾空行（默认，与 Judge0 的比对规则一致）
+    IGNORE_CASE,                // 在忽略行尾空白的基础上忽略大小写
+    FLOAT_EPSILON               // 按空白分隔逐个比较，两边都是数值时误差不超过 floatEpsilon 即视为相同
+}
@@ -24,6 +24,7 @@ public enum ErrorCode {
     // 提交相关
     SUBMISSION_NOT_FOUND(4001, "提交记录不存在"),
     SUBMISSION_ACCESS_DENIED(4002, "无权查看此提交记录"),
+    JUDGE_QUEUE_FULL(4003, "评测队列已满，请稍后重试"),
 
     // 系统错误
     INTERNAL_ERROR(5001, "系统内部错误");
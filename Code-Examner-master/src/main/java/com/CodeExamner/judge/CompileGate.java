@@ -0,0 +1,219 @@
+package com.CodeExamner.judge;
+
+import com.CodeExamner.util.SourceHashUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 提交前的本地编译检查：编译不通过的代码直接判为编译错误，不再占用评测服务。
+ *
+ * - Java 用 javax.tools 在进程内编译（源码和字节码都在内存中），按 Judge0 的 JDK 版本指定 --release；
+ * - Python 调用本机 python3 对源码做 compile()，只检查语法，不执行。
+ *
+ * C / C++ 不做本地检查：预处理器会按 #include 读取应用服务器上的任意文件（配置、密钥、设备文件），
+ * 而诊断信息会原样返回给学生，必须在评测服务的沙箱中编译。上面两种检查只解析提交的源码本身，不读取其他文件。
+ *
+ * 只拒绝确定编译失败的代码：工具链缺失、检查超时或出现异常时一律放行，由评测服务给出最终结果。
+ * 检查结果按 (语言, 源码) 的哈希缓存。
+ */
+@Slf4j
+@Component
+public class CompileGate implements InitializingBean {
+
+    // 缓存中表示编译通过的值
+    private static final String PASSED = "";
+
+    private static final String PYTHON_CHECK = String.join("\n",
+            "import sys, traceback",
+            "try:",
+            "    compile(sys.stdin.buffer.read(), 'main.py', 'exec')",
+            "except (SyntaxError, ValueError):",
+            "    sys.stderr.write(''.join(traceback.format_exception_only(*sys.exc_info()[:2])))",
+            "    sys.exit(1)");
+
+    @Value("${app.judge.compile-gate.enabled:true}")
+    private boolean enabled;
+
+    // 单次检查的最长时间，超时放行
+    @Value("${app.judge.compile-gate.timeout-ms:10000}")
+    private long timeoutMs;
+
+    @Value("${app.judge.compile-gate.cache-size:1024}")
+    private int cacheSize;
+
+    // 编译诊断信息最多保留的字符数
+    @Value("${app.judge.compile-gate.max-output-chars:8192}")
+    private int maxOutputChars;
+
+    // 与 Judge0 中 Java 语言（language_id 62，OpenJDK 13）的版本一致，本地与评测服务对同一份代码的编译结论相同
+    @Value("${app.judge.compile-gate.java-release:13}")
+    private int javaRelease;
+
+    @Value("${app.judge.compile-gate.python:python3}")
+    private String python;
+
+    private JavaCompiler javaCompiler;
+
+    private final Map<String, String> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    // 编译占用 CPU，同时进行的检查数不超过核数
+    private final Semaphore slots = new Semaphore(Runtime.getRuntime().availableProcessors());
+
+    // 读取工具输出的线程
+    private final ExecutorService readers = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Override
+    public void afterPropertiesSet() {
+        this.javaCompiler = ToolProvider.getSystemJavaCompiler();
+        if (enabled && javaCompiler == null) {
+            log.warn("当前运行环境不是 JDK，Java 提交跳过编译检查");
+        }
+    }
+
+    /**
+     * 检查代码能否编译。
+     *
+     * @return 编译通过或无法判断时返回 null，编译失败时返回编译器的诊断信息
+     */
+    public String check(String language, String code) {
+        if (!enabled || code == null) {
+            return null;
+        }
+        Language lang = Language.of(language);
+        if (lang == Language.NATIVE) {
+            return null;
+        }
+        String key = SourceHashUtil.sha256(lang.name(), code);
+        synchronized (cache) {
+            String cached = cache.get(key);
+            if (cached != null) {
+                return cached.isEmpty() ? null : cached;
+            }
+        }
+
+        String diagnostics;
+        try {
+            slots.acquire();
+            try {
+                diagnostics = switch (lang) {
+                    case JAVA -> checkJava(code);
+                    case PYTHON -> runTool(List.of(python, "-c", PYTHON_CHECK), code);
+                    case NATIVE -> null;
+                };
+            } finally {
+                slots.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (GateSkipped e) {
+            log.debug("编译检查跳过: {}", e.getMessage());
+            return null;
+        }
+
+        synchronized (cache) {
+            cache.put(key, diagnostics != null ? diagnostics : PASSED);
+            if (cache.size() > cacheSize) {
+                cache.remove(cache.keySet().iterator().next());
+            }
+        }
+        return diagnostics;
+    }
+
+    private String checkJava(String code) {
+        if (javaCompiler == null) {
+            throw new GateSkipped("没有可用的 Java 编译器");
+        }
+        try {
+            return truncate(InMemoryJavaCompiler.compile(javaCompiler, code, false, javaRelease).diagnostics());
+        } catch (IOException | RuntimeException e) {
+            throw new GateSkipped("Java 编译器异常: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 源码从标准输入传给工具，不落盘；退出码非 0 且有输出时视为编译失败。
+     */
+    private String runTool(List<String> command, String code) throws InterruptedException {
+        Process process;
+        try {
+            process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        } catch (IOException e) {
+            throw new GateSkipped("无法启动 " + command.get(0) + ": " + e.getMessage());
+        }
+        try {
+            CompletableFuture<String> output = CompletableFuture.supplyAsync(() -> readAll(process.getInputStream()), readers);
+            try (OutputStream stdin = process.getOutputStream()) {
+                stdin.write(code.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException ignored) {
+                // 工具提前退出时管道已关闭，以退出码为准
+            }
+            if (!process.waitFor(timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new GateSkipped(command.get(0) + " 检查超时");
+            }
+            String text = output.join();
+            if (process.exitValue() == 0 || text.isBlank()) {
+                return null;
+            }
+            return truncate(text);
+        } finally {
+            process.destroyForcibly();
+        }
+    }
+
+    private static String readAll(InputStream stream) {
+        try (stream) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private String truncate(String text) {
+        if (text == null || text.length() <= maxOutputChars) {
+            return text;
+        }
+        return text.substring(0, maxOutputChars) + "\n...";
+    }
+
+    /**
+     * 与 JudgeServiceImpl 中语言到 Judge0 language_id 的映射保持一致，未知语言按 Java 处理。
+     * NATIVE（C / C++）不做本地检查。
+     */
+    private enum Language {
+        NATIVE, PYTHON, JAVA;
+
+        static Language of(String language) {
+            String lang = language != null ? language.trim().toLowerCase() : "java";
+            return switch (lang) {
+                case "c", "cpp", "c++", "cpp17" -> NATIVE;
+                case "python", "python3", "py" -> PYTHON;
+                default -> JAVA;
+            };
+        }
+    }
+
+    // 无法得出结论的检查，调用方放行且不缓存
+    private static class GateSkipped extends RuntimeException {
+        GateSkipped(String message) {
+            super(message);
+        }
+    }
+}
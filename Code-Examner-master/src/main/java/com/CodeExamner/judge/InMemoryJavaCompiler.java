@@ -0,0 +1,92 @@
+package com.CodeExamner.judge;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 用 javax.tools 在内存中编译单文件 Java 提交（Main.java），源码和字节码都不落盘。
+ * classpath 置空，用户代码只能引用 JDK 的类，引用不到本应用的类。
+ */
+final class InMemoryJavaCompiler {
+
+    private InMemoryJavaCompiler() {
+    }
+
+    /**
+     * @param keepClasses 为 false 时只做检查，不保留生成的字节码
+     * @param release     目标 Java 版本（--release），为 null 时按当前 JDK 编译
+     */
+    static Output compile(JavaCompiler compiler, String source, boolean keepClasses, Integer release) throws IOException {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Map<String, ByteArrayOutputStream> classes = new LinkedHashMap<>();
+        boolean ok;
+        try (StandardJavaFileManager standard = compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8)) {
+            standard.setLocation(StandardLocation.CLASS_PATH, List.of());
+            JavaFileManager fileManager = new ForwardingJavaFileManager<>(standard) {
+                @Override
+                public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                                           JavaFileObject.Kind kind, FileObject sibling) {
+                    return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+                        @Override
+                        public OutputStream openOutputStream() {
+                            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                            if (keepClasses) {
+                                classes.put(className, bytes);
+                            }
+                            return bytes;
+                        }
+                    };
+                }
+            };
+            JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///Main.java"), JavaFileObject.Kind.SOURCE) {
+                @Override
+                public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                    return source != null ? source : "";
+                }
+            };
+            List<String> options = new ArrayList<>(List.of("-proc:none", "-nowarn", "-encoding", "UTF-8"));
+            if (release != null) {
+                options.add("--release");
+                options.add(release.toString());
+            }
+            ok = compiler.getTask(null, fileManager, diagnostics, options, null, List.of(file)).call();
+        }
+        if (!ok) {
+            StringBuilder output = new StringBuilder();
+            for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+                if (d.getKind() == Diagnostic.Kind.ERROR) {
+                    output.append("Main.java:").append(d.getLineNumber()).append(": error: ")
+                            .append(d.getMessage(Locale.ROOT)).append('\n');
+                }
+            }
+            return new Output(null, output.toString());
+        }
+        Map<String, byte[]> bytecode = new LinkedHashMap<>();
+        classes.forEach((name, bytes) -> bytecode.put(name, bytes.toByteArray()));
+        return new Output(bytecode, null);
+    }
+
+    /**
+     * 编译结果：成功时 diagnostics 为 null，失败时 classes 为 null。
+     */
+    record Output(Map<String, byte[]> classes, String diagnostics) {
+    }
+}
@@ -0,0 +1,605 @@
+package com.CodeExamner.judge;
+
+import com.CodeExamner.judge.worker.JavaWorkerMain;
+import com.CodeExamner.judge0.Judge0Result;
+import com.CodeExamner.judge0.Judge0Status;
+import com.CodeExamner.judge0.Judge0Submission;
+import com.CodeExamner.util.SourceHashUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Java 提交的预热 JVM 池（app.judge.java-workers.enabled=true）。
+ *
+ * Java 题目每个测试点的大部分时间花在 JVM 启动上，这里改为：
+ * - 在本进程内用 javax.tools 编译到内存，按源码哈希缓存编译结果；
+ * - 维护 pool-size 个常驻并已预热的 worker JVM（JavaWorkerMain），每次运行在一次性的沙箱类加载器中执行 Main.main，
+ *   标准输入输出经由 worker 的管道重定向；
+ * - worker 运行 runs-per-worker 次、超时、调用 System.exit、内存耗尽或崩溃后销毁并补充新的 worker。
+ *
+ * 作为主评测引擎包在 app.judge.engine 选定的引擎外面：Java 任务在这里执行，其他语言和 Multi-file 程序原样转交。
+ * 内存限制由 worker 的 -Xmx（heap-mb）统一约束，不按题目单独设置。
+ *
+ * 沙箱类加载器只是语言层面的白名单，不能替代操作系统隔离：worker 必须经 launcher 启动，
+ * 以独立的无特权用户或在容器 / seccomp 沙箱中运行（例如 "sudo -n -u judge-worker" 或 "bwrap ... --"），
+ * 且该用户对 work-dir 只有读权限。未配置 launcher 时不启用 worker 池，Java 提交仍交给委托引擎，
+ * 除非显式设置 allow-unisolated=true（仅用于本地开发）。
+ */
+@Slf4j
+@Primary
+@Component
+@ConditionalOnProperty(name = "app.judge.java-workers.enabled", havingValue = "true")
+public class JavaWorkerPoolEngine implements JudgeEngine, InitializingBean, DisposableBean {
+
+    private static final int JAVA_LANGUAGE_ID = 62;
+    private static final String TOKEN_PREFIX = "jw-";
+    private static final String MAIN_CLASS = "Main";
+    private static final double DEFAULT_CPU_TIME_LIMIT = 2.0;
+
+    // worker 进程需要的全部 class 文件（JavaWorkerMain 及其内部类）
+    private static final String[] WORKER_CLASSES = {
+            "JavaWorkerMain", "JavaWorkerMain$RunState", "JavaWorkerMain$BoundedOutput",
+            "JavaWorkerMain$SandboxClassLoader"
+    };
+
+    @Value("${app.judge.java-workers.pool-size:4}")
+    private int poolSize;
+
+    @Value("${app.judge.java-workers.runs-per-worker:200}")
+    private int runsPerWorker;
+
+    @Value("${app.judge.java-workers.heap-mb:256}")
+    private int heapMb;
+
+    @Value("${app.judge.java-workers.stack-mb:64}")
+    private int stackMb;
+
+    @Value("${app.judge.java-workers.max-output-bytes:1048576}")
+    private int maxOutputBytes;
+
+    @Value("${app.judge.java-workers.compile-cache-size:256}")
+    private int compileCacheSize;
+
+    // 等待空闲 worker 的最长时间
+    @Value("${app.judge.java-workers.max-wait-ms:30000}")
+    private long maxWaitMs;
+
+    @Value("${app.judge.java-workers.java:${java.home}/bin/java}")
+    private String java;
+
+    @Value("${app.judge.java-workers.work-dir:${java.io.tmpdir}/code-examner-java-workers}")
+    private Path workDir;
+
+    // 启动 worker 的命令前缀，用于切换到无特权用户或进入容器 / seccomp 沙箱，按空白分隔
+    @Value("${app.judge.java-workers.launcher:}")
+    private String launcher;
+
+    // 未配置 launcher 时是否仍以当前用户启动 worker
+    @Value("${app.judge.java-workers.allow-unisolated:false}")
+    private boolean allowUnisolated;
+
+    // 已结束但一直没有被 release 的结果保留多久
+    @Value("${app.judge.java-workers.result-ttl-ms:600000}")
+    private long resultTtlMs;
+
+    // 由 app.judge.engine 选定的引擎，处理非 Java 任务
+    @Autowired
+    private List<JudgeEngine> engines;
+
+    private JudgeEngine delegate;
+
+    private JavaCompiler compiler;
+
+    private Path workerClasspath;
+
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+
+    private final Map<String, WorkerRun> runs = new ConcurrentHashMap<>();
+
+    // 源码哈希 -> 编译结果，按访问顺序淘汰
+    private final Map<String, CompletableFuture<InMemoryJavaCompiler.Output>> compileCache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "java-worker-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Semaphore compileSlots = new Semaphore(Runtime.getRuntime().availableProcessors());
+
+    private volatile boolean shuttingDown;
+
+    private volatile BiConsumer<String, Judge0Result> resultListener;
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        this.delegate = engines.stream().filter(e -> e != this).findFirst()
+                .orElseThrow(() -> new IllegalStateException("未找到可委托的评测引擎"));
+        if (!StringUtils.hasText(launcher) && !allowUnisolated) {
+            log.warn("未配置 Java worker 的隔离启动方式（app.judge.java-workers.launcher），Java 提交仍交给 {}",
+                    delegate.getClass().getSimpleName());
+            return;
+        }
+        this.compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            log.warn("当前运行环境不是 JDK，无法在内存中编译，Java 提交仍交给 {}", delegate.getClass().getSimpleName());
+            return;
+        }
+        this.workerClasspath = exportWorkerClasses();
+        for (int i = 0; i < poolSize; i++) {
+            executor.execute(this::spawnWorker);
+        }
+        log.info("Java worker 池已启用: pool-size={}, runs-per-worker={}, heap={}MB", poolSize, runsPerWorker, heapMb);
+    }
+
+    @Override
+    public void destroy() {
+        shuttingDown = true;
+        executor.shutdownNow();
+        watchdog.shutdownNow();
+        Worker worker;
+        while ((worker = idle.poll()) != null) {
+            worker.kill();
+        }
+        runs.values().forEach(r -> {
+            Worker busy = r.worker;
+            if (busy != null) {
+                busy.kill();
+            }
+        });
+    }
+
+    @Override
+    public List<Judge0Submission> submitBatch(List<Judge0Submission> submissions) {
+        purgeExpired();
+        List<Judge0Submission> created = new ArrayList<>(Collections.nCopies(submissions.size(), null));
+        List<Integer> delegatedIndexes = new ArrayList<>();
+        List<Judge0Submission> delegated = new ArrayList<>();
+        for (int i = 0; i < submissions.size(); i++) {
+            Judge0Submission submission = submissions.get(i);
+            if (handles(submission)) {
+                created.set(i, start(submission));
+            } else {
+                delegatedIndexes.add(i);
+                delegated.add(submission);
+            }
+        }
+        if (!delegated.isEmpty()) {
+            List<Judge0Submission> fromDelegate = delegate.submitBatch(delegated);
+            for (int i = 0; i < delegatedIndexes.size(); i++) {
+                created.set(delegatedIndexes.get(i), fromDelegate.get(i));
+            }
+        }
+        return created;
+    }
+
+    @Override
+    public Judge0Submission submit(Judge0Submission submission) {
+        if (!handles(submission)) {
+            return delegate.submit(submission);
+        }
+        purgeExpired();
+        return start(submission);
+    }
+
+    @Override
+    public List<Judge0Result> poll(List<String> tokens) {
+        List<String> delegatedTokens = tokens.stream().filter(t -> !isOwn(t)).toList();
+        Map<String, Judge0Result> fromDelegate = new HashMap<>();
+        if (!delegatedTokens.isEmpty()) {
+            List<Judge0Result> results = delegate.poll(delegatedTokens);
+            if (results == null) {
+                return null;
+            }
+            for (int i = 0; i < delegatedTokens.size() && i < results.size(); i++) {
+                fromDelegate.put(delegatedTokens.get(i), results.get(i));
+            }
+        }
+        List<Judge0Result> results = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            results.add(isOwn(token) ? ownResult(token) : fromDelegate.get(token));
+        }
+        return results;
+    }
+
+    @Override
+    public void cancel(String token) {
+        if (!isOwn(token)) {
+            delegate.cancel(token);
+            return;
+        }
+        WorkerRun run = runs.remove(token);
+        if (run != null) {
+            run.cancelled = true;
+            Worker worker = run.worker;
+            if (worker != null) {
+                // 无法中止 worker 中正在执行的代码，只能连同 worker 一起销毁
+                worker.kill();
+            }
+        }
+    }
+
+    @Override
+    public void release(String token) {
+        if (isOwn(token)) {
+            runs.remove(token);
+        } else {
+            delegate.release(token);
+        }
+    }
+
+    @Override
+    public Collection<List<String>> partition(List<String> tokens) {
+        List<String> own = tokens.stream().filter(this::isOwn).toList();
+        List<String> others = tokens.stream().filter(t -> !isOwn(t)).toList();
+        List<List<String>> groups = new ArrayList<>();
+        if (!own.isEmpty()) {
+            groups.add(own);
+        }
+        if (!others.isEmpty()) {
+            groups.addAll(delegate.partition(others));
+        }
+        return groups;
+    }
+
+    @Override
+    public void setResultListener(BiConsumer<String, Judge0Result> listener) {
+        this.resultListener = listener;
+        delegate.setResultListener(listener);
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return delegate.getMaxBatchSize();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return delegate.isAvailable();
+    }
+
+    // Java 在 worker 池中逐个测试点运行，已经省去了重复编译和 JVM 启动，不再打包为 Multi-file 程序
+    @Override
+    public boolean supportsMultiFile(Integer languageId) {
+        return !(compiler != null && Integer.valueOf(JAVA_LANGUAGE_ID).equals(languageId))
+                && delegate.supportsMultiFile(languageId);
+    }
+
+    private boolean handles(Judge0Submission submission) {
+        return compiler != null && Integer.valueOf(JAVA_LANGUAGE_ID).equals(submission.getLanguageId())
+                && submission.getAdditionalFiles() == null && submission.getSourceCode() != null;
+    }
+
+    private boolean isOwn(String token) {
+        return token != null && token.startsWith(TOKEN_PREFIX);
+    }
+
+    private Judge0Submission start(Judge0Submission submission) {
+        WorkerRun run = new WorkerRun(TOKEN_PREFIX + UUID.randomUUID(), submission);
+        runs.put(run.token, run);
+        executor.execute(() -> execute(run));
+        Judge0Submission created = new Judge0Submission();
+        created.setToken(run.token);
+        return created;
+    }
+
+    private Judge0Result ownResult(String token) {
+        WorkerRun run = runs.get(token);
+        if (run == null) {
+            return null;
+        }
+        if (run.result != null) {
+            return run.result;
+        }
+        Judge0Result inProgress = new Judge0Result();
+        inProgress.setToken(token);
+        inProgress.setStatus(run.worker != null
+                ? JudgeResults.status(2, "Processing") : JudgeResults.status(1, "In Queue"));
+        return inProgress;
+    }
+
+    private void execute(WorkerRun run) {
+        try {
+            InMemoryJavaCompiler.Output program = compile(run.submission.getSourceCode()).join();
+            if (run.cancelled) {
+                return;
+            }
+            run.result = program.diagnostics() != null ? compileError(run, program.diagnostics()) : runOnWorker(run, program);
+        } catch (Exception e) {
+            log.error("Java worker 评测失败: token={}, {}", run.token, e.getMessage());
+            run.result = finish(run, JudgeResults.status(13, "Internal Error"));
+            run.result.setMessage(e.getMessage());
+        }
+        if (!run.cancelled && resultListener != null) {
+            resultListener.accept(run.token, run.result);
+        }
+    }
+
+    private Judge0Result runOnWorker(WorkerRun run, InMemoryJavaCompiler.Output program) throws Exception {
+        Judge0Submission submission = run.submission;
+        double cpuLimit = submission.getCpuTimeLimit() != null ? submission.getCpuTimeLimit() : DEFAULT_CPU_TIME_LIMIT;
+        double wallLimit = submission.getWallTimeLimit() != null ? submission.getWallTimeLimit() : cpuLimit * 2 + 1;
+
+        Worker worker = idle.poll(maxWaitMs, TimeUnit.MILLISECONDS);
+        if (worker == null) {
+            throw new IllegalStateException("没有空闲的 Java worker");
+        }
+        run.worker = worker;
+        boolean reusable = false;
+        // worker 自己会按限制中止用户代码；这里再兜底，防止 worker 本身卡死
+        ScheduledFuture<?> guard = watchdog.schedule(worker::kill, (long) (wallLimit * 1000) + 5000, TimeUnit.MILLISECONDS);
+        try {
+            worker.send(program, submission.getStdin(), cpuLimit, wallLimit);
+            WorkerResponse response = worker.receive();
+            reusable = response.reusable;
+            return toResult(run, worker, response);
+        } catch (IOException e) {
+            // worker 在回复之前就退出了，多半是用户代码导致 JVM 崩溃
+            Judge0Result result = finish(run, JudgeResults.status(12, "Runtime Error (Other)"));
+            result.setMessage("Java worker 异常退出");
+            return result;
+        } finally {
+            guard.cancel(false);
+            run.worker = null;
+            recycle(worker, reusable);
+        }
+    }
+
+    private Judge0Result toResult(WorkerRun run, Worker worker, WorkerResponse response) throws InterruptedException {
+        Judge0Result result = finish(run, null);
+        result.setStdout(response.stdout);
+        result.setStderr(response.stderr);
+        result.setTime(String.format(Locale.ROOT, "%.3f", response.cpuNanos / 1e9));
+        result.setWallTime(String.format(Locale.ROOT, "%.3f", response.wallNanos / 1e9));
+        switch (response.status) {
+            case JavaWorkerMain.STATUS_TIME_LIMIT -> result.setStatus(JudgeResults.status(5, "Time Limit Exceeded"));
+            case JavaWorkerMain.STATUS_EXCEPTION -> {
+                result.setExitCode(1);
+                result.setStatus(JudgeResults.status(11, "Runtime Error (NZEC)"));
+            }
+            case JavaWorkerMain.STATUS_EXIT -> {
+                // 用户代码调用了 System.exit，退出码就是 worker 进程的退出值
+                int exitCode = worker.awaitExit();
+                result.setExitCode(exitCode);
+                result.setStatus(exitCode == 0 ? JudgeResults.accepted() : JudgeResults.status(11, "Runtime Error (NZEC)"));
+            }
+            default -> {
+                result.setExitCode(0);
+                result.setStatus(JudgeResults.accepted());
+            }
+        }
+        return result;
+    }
+
+    private Judge0Result compileError(WorkerRun run, String diagnostics) {
+        Judge0Result result = finish(run, JudgeResults.status(6, "Compilation Error"));
+        result.setCompileOutput(diagnostics);
+        return result;
+    }
+
+    private Judge0Result finish(WorkerRun run, Judge0Status status) {
+        Judge0Result result = new Judge0Result();
+        result.setToken(run.token);
+        result.setStatus(status);
+        result.setCreatedAt(run.createdAt.toString());
+        result.setFinishedAt(OffsetDateTime.now().toString());
+        return result;
+    }
+
+    private CompletableFuture<InMemoryJavaCompiler.Output> compile(String source) {
+        String key = SourceHashUtil.sha256(source);
+        CompletableFuture<InMemoryJavaCompiler.Output> future;
+        boolean owner = false;
+        synchronized (compileCache) {
+            future = compileCache.get(key);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                compileCache.put(key, future);
+                if (compileCache.size() > compileCacheSize) {
+                    compileCache.remove(compileCache.keySet().iterator().next());
+                }
+                owner = true;
+            }
+        }
+        if (owner) {
+            try {
+                compileSlots.acquire();
+                try {
+                    future.complete(InMemoryJavaCompiler.compile(compiler, source, true, null));
+                } finally {
+                    compileSlots.release();
+                }
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+                synchronized (compileCache) {
+                    compileCache.remove(key);
+                }
+            }
+        }
+        return future;
+    }
+
+    // Spring Boot 打包后应用类位于嵌套 jar 中，worker 无法直接使用应用 classpath，这里把 worker 的类单独导出
+    private Path exportWorkerClasses() throws IOException {
+        Path classpath = workDir.resolve("classes");
+        Path packageDir = classpath.resolve(JavaWorkerMain.class.getPackageName().replace('.', '/'));
+        Files.createDirectories(packageDir);
+        for (String name : WORKER_CLASSES) {
+            try (InputStream in = JavaWorkerMain.class.getResourceAsStream(name + ".class")) {
+                if (in == null) {
+                    throw new IllegalStateException("找不到 worker 类: " + name);
+                }
+                Files.write(packageDir.resolve(name + ".class"), in.readAllBytes());
+            }
+        }
+        return classpath;
+    }
+
+    private void spawnWorker() {
+        if (shuttingDown) {
+            return;
+        }
+        try {
+            List<String> command = new ArrayList<>();
+            if (StringUtils.hasText(launcher)) {
+                command.addAll(List.of(launcher.trim().split("\\s+")));
+            }
+            command.addAll(List.of(java, "-Xmx" + heapMb + "m", "-Xss8m", "-XX:+UseSerialGC", "-Xshare:auto",
+                    "-XX:+DisableAttachMechanism", "-cp", workerClasspath.toString(), JavaWorkerMain.class.getName()));
+            Worker worker = new Worker(new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start());
+            ScheduledFuture<?> guard = watchdog.schedule(worker::kill, 30, TimeUnit.SECONDS);
+            try {
+                worker.awaitReady();
+            } finally {
+                guard.cancel(false);
+            }
+            idle.offer(worker);
+        } catch (IOException e) {
+            log.error("启动 Java worker 失败: {}", e.getMessage());
+        }
+    }
+
+    private void recycle(Worker worker, boolean reusable) {
+        if (reusable && worker.process.isAlive() && ++worker.runs < runsPerWorker) {
+            idle.offer(worker);
+            return;
+        }
+        worker.kill();
+        executor.execute(this::spawnWorker);
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        runs.values().removeIf(r -> r.result != null && now - r.createdAtMillis > resultTtlMs);
+    }
+
+
+    private record WorkerResponse(byte status, boolean reusable, String stdout, String stderr,
+                                  long cpuNanos, long wallNanos) {
+    }
+
+    private static class WorkerRun {
+        private final String token;
+        private final Judge0Submission submission;
+        private final OffsetDateTime createdAt = OffsetDateTime.now();
+        private final long createdAtMillis = System.currentTimeMillis();
+        private volatile Judge0Result result;
+        private volatile Worker worker;
+        private volatile boolean cancelled;
+
+        WorkerRun(String token, Judge0Submission submission) {
+            this.token = token;
+            this.submission = submission;
+        }
+    }
+
+    /**
+     * 一个 worker JVM 及其通信管道。
+     */
+    private class Worker {
+        private final Process process;
+        private final DataOutputStream requests;
+        private final DataInputStream responses;
+        private int runs;
+
+        Worker(Process process) {
+            this.process = process;
+            this.requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.responses = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        }
+
+        void awaitReady() throws IOException {
+            if (responses.readUnsignedByte() != JavaWorkerMain.READY) {
+                kill();
+                throw new IOException("Java worker 握手失败");
+            }
+        }
+
+        void send(InMemoryJavaCompiler.Output program, String stdin, double cpuLimit, double wallLimit) throws IOException {
+            requests.writeInt(program.classes().size());
+            for (Map.Entry<String, byte[]> entry : program.classes().entrySet()) {
+                requests.writeUTF(entry.getKey());
+                requests.writeInt(entry.getValue().length);
+                requests.write(entry.getValue());
+            }
+            requests.writeUTF(MAIN_CLASS);
+            byte[] input = (stdin != null ? stdin : "").getBytes(StandardCharsets.UTF_8);
+            requests.writeInt(input.length);
+            requests.write(input);
+            requests.writeLong((long) (cpuLimit * 1e9));
+            requests.writeLong((long) (wallLimit * 1000));
+            requests.writeInt(maxOutputBytes);
+            requests.writeInt(stackMb * 1024 * 1024);
+            requests.flush();
+        }
+
+        WorkerResponse receive() throws IOException {
+            byte status = responses.readByte();
+            boolean reusable = responses.readBoolean();
+            byte[] stdout = new byte[responses.readInt()];
+            responses.readFully(stdout);
+            byte[] stderr = new byte[responses.readInt()];
+            responses.readFully(stderr);
+            long cpuNanos = responses.readLong();
+            long wallNanos = responses.readLong();
+            return new WorkerResponse(status, reusable, new String(stdout, StandardCharsets.UTF_8),
+                    new String(stderr, StandardCharsets.UTF_8), cpuNanos, wallNanos);
+        }
+
+        int awaitExit() throws InterruptedException {
+            if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                kill();
+                return 1;
+            }
+            return process.exitValue();
+        }
+
+        void kill() {
+            process.destroyForcibly();
+        }
+    }
+}
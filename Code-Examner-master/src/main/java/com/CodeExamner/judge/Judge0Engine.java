@@ -0,0 +1,72 @@
+package com.CodeExamner.judge;
+
+import com.CodeExamner.judge0.Judge0CircuitBreaker;
+import com.CodeExamner.judge0.Judge0Client;
+import com.CodeExamner.judge0.Judge0Result;
+import com.CodeExamner.judge0.Judge0Submission;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 基于 Judge0 的评测引擎（默认）：任务交给 Judge0 节点池执行，结果由回调或轮询获得。
+ */
+@Component
+@ConditionalOnProperty(name = "app.judge.engine", havingValue = "judge0", matchIfMissing = true)
+public class Judge0Engine implements JudgeEngine {
+
+    @Autowired
+    private Judge0Client judge0Client;
+
+    @Autowired
+    private Judge0CircuitBreaker circuitBreaker;
+
+    @Override
+    public List<Judge0Submission> submitBatch(List<Judge0Submission> submissions) {
+        return judge0Client.submitBatch(submissions);
+    }
+
+    @Override
+    public Judge0Submission submit(Judge0Submission submission) {
+        return judge0Client.submitCode(submission);
+    }
+
+    @Override
+    public List<Judge0Result> poll(List<String> tokens) {
+        return judge0Client.getSubmissionResults(tokens);
+    }
+
+    // Judge0 不支持中止排队中的任务，只能不再关心它的结果
+    @Override
+    public void cancel(String token) {
+        judge0Client.release(token);
+    }
+
+    @Override
+    public void release(String token) {
+        judge0Client.release(token);
+    }
+
+    @Override
+    public Collection<List<String>> partition(List<String> tokens) {
+        return judge0Client.groupByNode(tokens);
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return judge0Client.getMaxBatchSize();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return circuitBreaker.isClosed();
+    }
+
+    @Override
+    public boolean supportsMultiFile(Integer languageId) {
+        return true;
+    }
+}
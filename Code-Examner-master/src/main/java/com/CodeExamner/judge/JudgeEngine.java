@@ -0,0 +1,80 @@
+package com.CodeExamner.judge;
+
+import com.CodeExamner.judge0.Judge0Result;
+import com.CodeExamner.judge0.Judge0Submission;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * 评测引擎 SPI：负责执行评测任务并给出结果，由 app.judge.engine 选择具体实现。
+ *
+ * 任务与结果沿用 Judge0 的数据结构（Judge0Submission / Judge0Result）和状态码，
+ * 这样 JudgeServiceImpl 和 Judge0ResultPoller 不需要关心背后是 Judge0 还是本地沙箱。
+ * 每个任务以引擎分配的 token 标识；结果可以由轮询器通过 poll 拉取，也可以由引擎主动推送。
+ */
+public interface JudgeEngine {
+
+    /**
+     * 批量创建评测任务。返回列表与入参一一对应，被拒绝的任务 token 为 null。
+     *
+     * @throws com.CodeExamner.judge0.Judge0UnavailableException 引擎暂时不可用，调用方应暂存提交稍后重试
+     */
+    List<Judge0Submission> submitBatch(List<Judge0Submission> submissions);
+
+    /**
+     * 创建单个评测任务（例如一次编译、多次运行的 Multi-file 程序）。
+     */
+    Judge0Submission submit(Judge0Submission submission);
+
+    /**
+     * 查询一批任务的结果，返回列表与入参一一对应；引擎不认识的 token 对应元素为 null，
+     * 尚未结束的任务返回 In Queue / Processing 状态。整批查询失败时返回 null。
+     */
+    List<Judge0Result> poll(List<String> tokens);
+
+    /**
+     * 尽力取消任务：不再需要它的结果（例如快速失败后剩余的测试点）。
+     */
+    void cancel(String token);
+
+    /**
+     * 任务的结果已经处理或不再需要，引擎可以释放为它保留的状态。
+     */
+    default void release(String token) {
+    }
+
+    /**
+     * 把 token 分成互不影响的查询分组（例如按所属节点），某一组查询失败不会拖累其他组。
+     */
+    default Collection<List<String>> partition(List<String> tokens) {
+        return List.of(tokens);
+    }
+
+    /**
+     * 注册结果推送回调；能主动推送结果的引擎在任务结束时调用它，不支持推送的引擎忽略。
+     */
+    default void setResultListener(BiConsumer<String, Judge0Result> listener) {
+    }
+
+    /**
+     * 单次 submitBatch / poll 的任务数上限。
+     */
+    int getMaxBatchSize();
+
+    /**
+     * 引擎当前是否可以接受新任务；不可用时提交被暂存为 WAITING。
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * 该语言（Judge0 language_id）的提交能否打包为 Judge0 的 Multi-file 程序（language_id 89）交给本引擎，
+     * 决定能否使用 CompileOnceProgram。
+     */
+    default boolean supportsMultiFile(Integer languageId) {
+        return false;
+    }
+}
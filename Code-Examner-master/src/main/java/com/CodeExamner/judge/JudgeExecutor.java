@@ -0,0 +1,150 @@
+package com.CodeExamner.judge;
+
+import com.CodeExamner.exception.BusinessException;
+import com.CodeExamner.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 评测专用执行器，替代 Spring 默认的 @Async 线程池。
+ *
+ * - 任务运行在 Java 21 虚拟线程上，等待 Judge0 响应时不占用平台线程；
+ * - 通过信号量限制同时执行的分发任务数（max-concurrency）。一个任务负责一次提交的分发：
+ *   取测试用例、批量创建 Judge0 评测任务后即返回，结果由 Judge0ResultPoller 异步收集，
+ *   因此这里限制的不是 Judge0 上同时运行的评测任务数，后者由 Judge0ConcurrencyLimiter 控制；
+ * - 等待执行的任务放在有界准入队列 JudgeScheduler 中（queue-capacity），按考试优先、学生公平的顺序出队，
+ *   队列满时直接拒绝并提示稍后重试；调用方应在保存提交之前用 isFull 检查，避免留下无人评测的记录；
+ * - 同一提交的任务归属于同一个作用域，cancel(submissionId) 移除排队中的并中断正在分发的任务；
+ *   已经分发到 Judge0 的评测任务由调用方另行通过 Judge0ResultPoller.untrackSubmission 取消。
+ */
+@Slf4j
+@Component
+public class JudgeExecutor implements InitializingBean, DisposableBean {
+
+    @Value("${app.judge.executor.max-concurrency:16}")
+    private int maxConcurrency;
+
+    @Autowired
+    private JudgeScheduler scheduler;
+
+    private final ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+
+    // 每个提交正在运行的任务
+    private final Map<Long, Set<Future<?>>> scopes = new ConcurrentHashMap<>();
+
+    private Semaphore permits;
+
+    private Thread dispatcher;
+
+    @Override
+    public void afterPropertiesSet() {
+        permits = new Semaphore(maxConcurrency);
+        dispatcher = Thread.ofPlatform().name("judge-dispatcher").daemon().start(this::dispatchLoop);
+    }
+
+    /**
+     * 提交一个属于某个提交的评测任务。准入队列已满时抛出 JUDGE_QUEUE_FULL。
+     *
+     * @param studentId 提交者，用于通道内的公平排队
+     * @param lane      进行中考试的提交使用 EXAM 通道
+     */
+    public void submit(Long submissionId, Long studentId, JudgeScheduler.Lane lane, Runnable task) {
+        if (!scheduler.offer(lane, studentId, 1.0, 1.0, new JudgeTask(submissionId, task))) {
+            log.warn("评测队列已满，拒绝提交: submissionId={}, queued={}", submissionId, scheduler.size());
+            throw new BusinessException(ErrorCode.JUDGE_QUEUE_FULL);
+        }
+    }
+
+    /**
+     * 取消某个提交在本执行器中的任务：移除仍在排队的任务，并中断正在分发的任务。
+     */
+    public void cancel(Long submissionId) {
+        scheduler.<JudgeTask>removeIf(t -> t.submissionId().equals(submissionId));
+        Set<Future<?>> running = scopes.remove(submissionId);
+        if (running != null) {
+            running.forEach(f -> f.cancel(true));
+        }
+    }
+
+    /**
+     * 准入队列是否已满。只是提前检查，并发提交时 submit 仍可能被拒绝。
+     */
+    public boolean isFull() {
+        return scheduler.isFull();
+    }
+
+    public int getQueuedCount() {
+        return scheduler.size();
+    }
+
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                permits.acquire();
+                JudgeTask task;
+                try {
+                    task = scheduler.take();
+                } catch (InterruptedException e) {
+                    permits.release();
+                    throw e;
+                }
+                start(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void start(JudgeTask task) {
+        Long submissionId = task.submissionId();
+        // done() 在任务正常结束、异常或被取消（包括尚未开始就被取消）时都会被调用，保证许可一定归还
+        FutureTask<Void> future = new FutureTask<>(() -> {
+            try {
+                task.runnable().run();
+            } catch (Exception e) {
+                log.error("评测任务执行失败: submissionId={}, {}", submissionId, e.getMessage());
+            }
+        }, null) {
+            @Override
+            protected void done() {
+                permits.release();
+                scopes.computeIfPresent(submissionId, (id, scope) -> {
+                    scope.remove(this);
+                    return scope.isEmpty() ? null : scope;
+                });
+            }
+        };
+        scopes.compute(submissionId, (id, scope) -> {
+            Set<Future<?>> s = scope != null ? scope : ConcurrentHashMap.newKeySet();
+            s.add(future);
+            return s;
+        });
+        virtualThreads.execute(future);
+    }
+
+    @Override
+    public void destroy() {
+        dispatcher.interrupt();
+        virtualThreads.shutdownNow();
+    }
+
+    private record JudgeTask(Long submissionId, Runnable runnable) {
+    }
+}
@@ -0,0 +1,127 @@
+package com.CodeExamner.judge;
+
+import com.CodeExamner.judge0.Judge0ResultPoller;
+import com.CodeExamner.service.SubmissionLeaseService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.net.InetAddress;
+import java.util.Set;
+
+/**
+ * 本节点的评测身份与停机排空。
+ *
+ * 分发评测任务时在提交详情中记录节点 ID，重启后只恢复本节点的在途任务（见 JudgeServiceImpl.recoverInFlightRuns）。
+ * 滚动发布时节点 ID 需保持稳定（例如固定的主机名），否则重启前的任务要等租约过期后才被接管。
+ *
+ * 停机时在 Web 服务器停止接收请求之前进入排空：不再在本节点分发新的评测（启用消息队列时交给其他节点，
+ * 否则立即让出租约），继续接收回调并主动轮询在途任务，最多等待 drain.timeout-ms；
+ * 超时仍未出结果的提交让出租约，由其他节点按记录的 token 接着轮询。
+ * 容器关闭时定时任务已先于此处停止，因此排空期间由这里直接驱动轮询。
+ */
+@Slf4j
+@Component
+public class JudgeNode implements SmartLifecycle, InitializingBean {
+
+    private static final long DRAIN_POLL_INTERVAL_MS = 200;
+
+    @Autowired
+    private Judge0ResultPoller judge0ResultPoller;
+
+    @Autowired
+    private JudgeExecutor judgeExecutor;
+
+    @Autowired
+    private SubmissionLeaseService submissionLeaseService;
+
+    // 为空时使用主机名
+    @Value("${app.judge.node-id:}")
+    private String configuredId;
+
+    @Value("${app.judge.drain.timeout-ms:30000}")
+    private long drainTimeoutMs;
+
+    private String id;
+
+    private volatile boolean running;
+
+    private volatile boolean draining;
+
+    @Override
+    public void afterPropertiesSet() {
+        String name = StringUtils.hasText(configuredId) ? configuredId : hostName();
+        // 与 SubmissionDetail.judgeNode 的列长一致
+        id = name.length() > 64 ? name.substring(0, 64) : name;
+        log.info("评测节点 ID: {}", id);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * 排空中不再在本节点分发新的评测。
+     */
+    public boolean isDraining() {
+        return draining;
+    }
+
+    @Override
+    public void start() {
+        draining = false;
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        draining = true;
+        long deadline = System.currentTimeMillis() + drainTimeoutMs;
+        try {
+            while (System.currentTimeMillis() < deadline
+                    && (judge0ResultPoller.getPendingCount() > 0 || judgeExecutor.getActiveCount() > 0)) {
+                judge0ResultPoller.pollDueTokens();
+                Thread.sleep(DRAIN_POLL_INTERVAL_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("排空评测任务时出错: {}", e.getMessage());
+        }
+
+        Set<Long> remaining = judge0ResultPoller.getPendingSubmissionIds();
+        if (!remaining.isEmpty()) {
+            try {
+                submissionLeaseService.expire(remaining);
+                log.info("停机排空超时，{} 个提交的在途评测任务交由其他节点接管", remaining.size());
+            } catch (RuntimeException e) {
+                log.warn("让出评测租约失败，这些提交将在租约自然过期后被接管: {}", e.getMessage());
+            }
+        }
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // 先于 Web 服务器的优雅停机执行，排空期间仍能收到 Judge0 回调
+    @Override
+    public int getPhase() {
+        return WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE + 1;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
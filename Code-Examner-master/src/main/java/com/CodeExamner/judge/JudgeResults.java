@@ -0,0 +1,24 @@
+package com.CodeExamner.judge;
+
+import com.CodeExamner.judge0.Judge0Status;
+
+/**
+ * 本地评测引擎构造 Judge0 风格结果时共用的小工具。
+ */
+final class JudgeResults {
+
+    private JudgeResults() {
+    }
+
+    static Judge0Status status(int id, String description) {
+        Judge0Status status = new Judge0Status();
+        status.setId(id);
+        status.setDescription(description);
+        return status;
+    }
+
+    // 正常退出即记为通过：期望输出不交给评测引擎，由 JudgeServiceImpl 按题目的比对方式（OutputComparator）判定
+    static Judge0Status accepted() {
+        return status(3, "Accepted");
+    }
+}
@@ -0,0 +1,178 @@
+package com.CodeExamner.judge;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * 评测任务调度队列（JudgeExecutor 的准入队列）。
+ *
+ * - 两条优先级通道：进行中考试的提交走 EXAM 通道，其余走 PRACTICE 通道。
+ *   EXAM 通道优先出队，但两条通道都有任务时，每连续出队 exam-burst 个考试任务会让出一次给练习任务，避免练习提交饿死。
+ * - 通道内按学生做加权公平排队（WFQ）：每个任务入队时根据该学生上一个任务的虚拟完成时间计算自己的完成标签，
+ *   出队时取标签最小者。某个学生连续提交只会把自己的任务越排越后，不会挤占其他学生的评测机会。
+ */
+@Component
+public class JudgeScheduler {
+
+    public enum Lane {
+        EXAM, PRACTICE
+    }
+
+    @Value("${app.judge.executor.queue-capacity:1000}")
+    private int capacity;
+
+    @Value("${app.judge.scheduler.exam-burst:8}")
+    private int examBurst;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Map<Lane, FairQueue> lanes = Map.of(Lane.EXAM, new FairQueue(), Lane.PRACTICE, new FairQueue());
+
+    private int size;
+    private int consecutiveExam;
+    private long sequence;
+
+    /**
+     * 入队；队列已满时返回 false。
+     *
+     * @param weight 该学生的权重，权重越大分到的评测份额越多
+     * @param cost   任务的代价（例如测试点数量），代价越大后续任务排得越靠后
+     */
+    public <T> boolean offer(Lane lane, Long studentId, double weight, double cost, T item) {
+        lock.lock();
+        try {
+            if (size >= capacity) {
+                return false;
+            }
+            lanes.get(lane).add(studentId, weight, cost, item, sequence++);
+            size++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 阻塞直到有任务可出队。
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                notEmpty.await();
+            }
+            FairQueue exam = lanes.get(Lane.EXAM);
+            FairQueue practice = lanes.get(Lane.PRACTICE);
+
+            FairQueue chosen;
+            if (exam.isEmpty()) {
+                chosen = practice;
+            } else if (practice.isEmpty() || consecutiveExam < examBurst) {
+                chosen = exam;
+            } else {
+                chosen = practice;
+            }
+            consecutiveExam = chosen == exam ? consecutiveExam + 1 : 0;
+            size--;
+            return (T) chosen.poll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 移除满足条件的排队任务（用于取消某个提交的全部任务）。
+     */
+    public <T> void removeIf(Predicate<T> predicate) {
+        lock.lock();
+        try {
+            for (FairQueue queue : lanes.values()) {
+                size -= queue.removeIf(predicate);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isFull() {
+        lock.lock();
+        try {
+            return size >= capacity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size(Lane lane) {
+        lock.lock();
+        try {
+            return lanes.get(lane).entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 单条通道内的加权公平队列。
+     */
+    private static class FairQueue {
+        private final PriorityQueue<Entry> entries = new PriorityQueue<>();
+        // 每个学生最近一个任务的虚拟完成时间
+        private final Map<Long, Double> lastFinish = new HashMap<>();
+        // 通道虚拟时间：最近出队任务的完成标签
+        private double virtualTime;
+
+        void add(Long studentId, double weight, double cost, Object item, long seq) {
+            double start = Math.max(virtualTime, lastFinish.getOrDefault(studentId, 0.0));
+            double finish = start + cost / Math.max(weight, 1e-6);
+            lastFinish.put(studentId, finish);
+            entries.add(new Entry(finish, seq, studentId, item));
+        }
+
+        Object poll() {
+            Entry entry = entries.poll();
+            virtualTime = entry.finish;
+            // 已经落后于通道虚拟时间的学生记录没有意义，及时清理防止无限增长
+            lastFinish.values().removeIf(f -> f <= virtualTime);
+            return entry.item;
+        }
+
+        boolean isEmpty() {
+            return entries.isEmpty();
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> int removeIf(Predicate<T> predicate) {
+            int before = entries.size();
+            entries.removeIf(e -> predicate.test((T) e.item));
+            return before - entries.size();
+        }
+    }
+
+    private record Entry(double finish, long seq, Long studentId, Object item) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry o) {
+            int c = Double.compare(finish, o.finish);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+}
@@ -0,0 +1,498 @@
+package com.CodeExamner.judge;
+
+import com.CodeExamner.judge0.Judge0Result;
+import com.CodeExamner.judge0.Judge0Status;
+import com.CodeExamner.judge0.Judge0Submission;
+import com.CodeExamner.util.SourceHashUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * 本地沙箱评测引擎（app.judge.engine=local）：不依赖 Judge0，在本机子进程中编译并运行 C / C++ / Python / Java。
+ *
+ * - 同一批任务中源码相同的只编译一次，编译产物在该批任务全部结束后删除；
+ * - 运行时通过 ulimit 限制 CPU 时间（-t）和虚拟内存（-v，Java 改用 -Xmx），并按墙钟时间强制终止；
+ * - 结果按 Judge0 的状态码填写（3 通过、4 答案错误、5 超时、6 编译错误、7~12 运行错误、13 内部错误），
+ *   评测结束时主动推送给轮询器，同时保留到 release 为止以便轮询兜底。
+ *
+ * 只适用于 Linux，且不隔离文件系统和网络，用于练习 / 样例运行和压测时排除 Judge0 的影响，不应评测不可信的考试代码。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.judge.engine", havingValue = "local")
+public class LocalSandboxEngine implements JudgeEngine, InitializingBean, DisposableBean {
+
+    @Value("${app.judge.local.work-dir:${java.io.tmpdir}/code-examner-judge}")
+    private Path workDir;
+
+    // 同时编译 / 运行的子进程数，0 表示 CPU 核数
+    @Value("${app.judge.local.max-parallel:0}")
+    private int maxParallel;
+
+    @Value("${app.judge.local.compile-timeout-ms:15000}")
+    private long compileTimeoutMs;
+
+    // stdout / stderr 各自最多保留的字节数，超出部分丢弃
+    @Value("${app.judge.local.max-output-bytes:1048576}")
+    private int maxOutputBytes;
+
+    // 已结束但一直没有被 release 的结果保留多久
+    @Value("${app.judge.local.result-ttl-ms:600000}")
+    private long resultTtlMs;
+
+    @Value("${app.judge.local.gcc:gcc}")
+    private String gcc;
+
+    @Value("${app.judge.local.gpp:g++}")
+    private String gpp;
+
+    @Value("${app.judge.local.python:python3}")
+    private String python;
+
+    @Value("${app.judge.local.javac:javac}")
+    private String javac;
+
+    @Value("${app.judge.local.java:java}")
+    private String java;
+
+    private static final double DEFAULT_CPU_TIME_LIMIT = 2.0;
+    private static final int DEFAULT_MEMORY_LIMIT_KB = 128 * 1024;
+
+    private final Map<String, LocalRun> runs = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private Semaphore slots;
+
+    private volatile BiConsumer<String, Judge0Result> resultListener;
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        Files.createDirectories(workDir);
+        int parallel = maxParallel > 0 ? maxParallel : Runtime.getRuntime().availableProcessors();
+        this.slots = new Semaphore(parallel);
+        log.info("本地沙箱评测引擎已启用: workDir={}, 并行度={}", workDir, parallel);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        runs.values().forEach(LocalRun::kill);
+    }
+
+    @Override
+    public List<Judge0Submission> submitBatch(List<Judge0Submission> submissions) {
+        purgeExpired();
+        List<Judge0Submission> created = new ArrayList<>(submissions.size());
+        // 同一批中语言和源码相同的任务共享一次编译
+        Map<String, Compilation> compilations = new HashMap<>();
+        List<LocalRun> accepted = new ArrayList<>();
+        for (Judge0Submission submission : submissions) {
+            Judge0Submission response = new Judge0Submission();
+            Language language = Language.of(submission.getLanguageId());
+            if (language != null && submission.getSourceCode() != null) {
+                String key = SourceHashUtil.sha256(String.valueOf(submission.getLanguageId()), submission.getSourceCode());
+                Compilation compilation = compilations.computeIfAbsent(key, k -> new Compilation(language, submission.getSourceCode()));
+                compilation.users.incrementAndGet();
+                LocalRun run = new LocalRun(UUID.randomUUID().toString(), submission, compilation);
+                runs.put(run.token, run);
+                accepted.add(run);
+                response.setToken(run.token);
+            }
+            created.add(response);
+        }
+        // 所有任务登记完毕后再启动，避免第一个任务结束时误删还会被后续任务使用的编译产物
+        accepted.forEach(r -> executor.execute(() -> execute(r)));
+        return created;
+    }
+
+    @Override
+    public Judge0Submission submit(Judge0Submission submission) {
+        Judge0Submission created = submitBatch(List.of(submission)).get(0);
+        if (created.getToken() == null) {
+            throw new RuntimeException("本地评测引擎不支持该语言");
+        }
+        return created;
+    }
+
+    @Override
+    public List<Judge0Result> poll(List<String> tokens) {
+        List<Judge0Result> results = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            LocalRun run = runs.get(token);
+            if (run == null) {
+                results.add(null);
+            } else if (run.result != null) {
+                results.add(run.result);
+            } else {
+                Judge0Result inProgress = new Judge0Result();
+                inProgress.setToken(token);
+                inProgress.setStatus(run.running ? JudgeResults.status(2, "Processing") : JudgeResults.status(1, "In Queue"));
+                results.add(inProgress);
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void cancel(String token) {
+        LocalRun run = runs.remove(token);
+        if (run != null) {
+            run.cancelled = true;
+            run.kill();
+        }
+    }
+
+    @Override
+    public void release(String token) {
+        runs.remove(token);
+    }
+
+    @Override
+    public void setResultListener(BiConsumer<String, Judge0Result> listener) {
+        this.resultListener = listener;
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return 1000;
+    }
+
+    private void execute(LocalRun run) {
+        try {
+            slots.acquire();
+            try {
+                if (run.cancelled) {
+                    return;
+                }
+                run.running = true;
+                Judge0Result compileError = run.compilation.awaitCompiled(this);
+                run.result = compileError != null ? withToken(compileError, run) : runProgram(run);
+            } finally {
+                slots.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.result = internalError(run, "评测被中断");
+        } catch (Exception e) {
+            log.error("本地评测失败: token={}, {}", run.token, e.getMessage());
+            run.result = internalError(run, e.getMessage());
+        } finally {
+            run.compilation.releaseUser();
+        }
+        if (run.result != null && !run.cancelled && resultListener != null) {
+            resultListener.accept(run.token, run.result);
+        }
+    }
+
+    private Judge0Result runProgram(LocalRun run) throws IOException, InterruptedException {
+        Judge0Submission submission = run.submission;
+        Language language = run.compilation.language;
+        double cpuLimit = submission.getCpuTimeLimit() != null ? submission.getCpuTimeLimit() : DEFAULT_CPU_TIME_LIMIT;
+        int memoryKb = submission.getMemoryLimit() != null ? submission.getMemoryLimit() : DEFAULT_MEMORY_LIMIT_KB;
+        double wallLimit = submission.getWallTimeLimit() != null ? submission.getWallTimeLimit() : cpuLimit * 2 + 1;
+
+        List<String> command = new ArrayList<>(List.of("/bin/sh", "-c", limits(language, cpuLimit, memoryKb), "sh"));
+        command.addAll(language.runCommand(this, run.compilation.dir, memoryKb));
+
+        Path stdin = run.compilation.dir.resolve("stdin-" + run.token);
+        Files.writeString(stdin, submission.getStdin() != null ? submission.getStdin() : "", StandardCharsets.UTF_8);
+        try {
+            long startedAt = System.nanoTime();
+            Process process = new ProcessBuilder(command)
+                    .directory(run.compilation.dir.toFile())
+                    .redirectInput(stdin.toFile())
+                    .start();
+            run.process = process;
+            CompletableFuture<String> stdout = capture(process.getInputStream());
+            CompletableFuture<String> stderr = capture(process.getErrorStream());
+
+            boolean exited = process.waitFor((long) (wallLimit * 1000), TimeUnit.MILLISECONDS);
+            if (!exited) {
+                run.kill();
+                process.waitFor();
+            }
+            double seconds = (System.nanoTime() - startedAt) / 1e9;
+
+            Judge0Result result = baseResult(run);
+            result.setStdout(stdout.join());
+            result.setStderr(stderr.join());
+            result.setTime(String.format(Locale.ROOT, "%.3f", seconds));
+            result.setWallTime(result.getTime());
+            result.setFinishedAt(OffsetDateTime.now().toString());
+
+            int exitCode = process.exitValue();
+            if (!exited || exitCode == 128 + 24 || exitCode == 128 + 9 && seconds >= cpuLimit) {
+                // 墙钟超时、SIGXCPU（超出 ulimit -t 软限制）或超过 CPU 硬限制后被 SIGKILL
+                result.setStatus(JudgeResults.status(5, "Time Limit Exceeded"));
+            } else if (exitCode > 128) {
+                result.setExitSignal(exitCode - 128);
+                result.setStatus(signalStatus(exitCode - 128));
+            } else if (exitCode != 0) {
+                result.setExitCode(exitCode);
+                result.setStatus(JudgeResults.status(11, "Runtime Error (NZEC)"));
+            } else {
+                result.setExitCode(0);
+                result.setStatus(JudgeResults.accepted());
+            }
+            return result;
+        } finally {
+            run.process = null;
+            Files.deleteIfExists(stdin);
+        }
+    }
+
+    // ulimit -t 以秒为单位只接受整数，向上取整；Java 的堆由 -Xmx 控制，限制虚拟内存会让 JVM 无法启动
+    private String limits(Language language, double cpuLimit, int memoryKb) {
+        StringBuilder script = new StringBuilder("ulimit -t ").append((int) Math.ceil(cpuLimit)).append("; ");
+        if (language != Language.JAVA) {
+            script.append("ulimit -v ").append(memoryKb).append("; ");
+        }
+        return script.append("exec \"$@\"").toString();
+    }
+
+    /**
+     * 编译源码，成功返回 null，失败返回编译错误结果。
+     */
+    private Judge0Result compile(Compilation compilation) throws IOException, InterruptedException {
+        compilation.dir = Files.createTempDirectory(workDir, "run-");
+        Files.writeString(compilation.dir.resolve(compilation.language.sourceFile), compilation.sourceCode,
+                StandardCharsets.UTF_8);
+        List<String> command = compilation.language.compileCommand(this);
+        if (command == null) {
+            return null;
+        }
+        Process process = new ProcessBuilder(command)
+                .directory(compilation.dir.toFile())
+                .redirectErrorStream(true)
+                .start();
+        CompletableFuture<String> output = capture(process.getInputStream());
+        if (!process.waitFor(compileTimeoutMs, TimeUnit.MILLISECONDS)) {
+            process.destroyForcibly();
+            Judge0Result result = new Judge0Result();
+            result.setStatus(JudgeResults.status(6, "Compilation Error"));
+            result.setCompileOutput("编译超时");
+            return result;
+        }
+        if (process.exitValue() != 0) {
+            Judge0Result result = new Judge0Result();
+            result.setStatus(JudgeResults.status(6, "Compilation Error"));
+            result.setCompileOutput(output.join());
+            return result;
+        }
+        return null;
+    }
+
+    private CompletableFuture<String> capture(InputStream stream) {
+        return CompletableFuture.supplyAsync(() -> {
+            ByteArrayOutputStream kept = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            try (stream) {
+                int n;
+                while ((n = stream.read(buffer)) != -1) {
+                    // 超出上限的部分继续读掉但不保留，避免子进程因管道写满而阻塞
+                    int room = maxOutputBytes - kept.size();
+                    if (room > 0) {
+                        kept.write(buffer, 0, Math.min(n, room));
+                    }
+                }
+            } catch (IOException ignored) {
+                // 进程被强制终止时管道会提前关闭
+            }
+            return kept.toString(StandardCharsets.UTF_8);
+        }, executor);
+    }
+
+    private Judge0Status signalStatus(int signal) {
+        return switch (signal) {
+            case 11 -> JudgeResults.status(7, "Runtime Error (SIGSEGV)");
+            case 25 -> JudgeResults.status(8, "Runtime Error (SIGXFSZ)");
+            case 8 -> JudgeResults.status(9, "Runtime Error (SIGFPE)");
+            case 6 -> JudgeResults.status(10, "Runtime Error (SIGABRT)");
+            default -> JudgeResults.status(12, "Runtime Error (Other)");
+        };
+    }
+
+    private Judge0Result baseResult(LocalRun run) {
+        Judge0Result result = new Judge0Result();
+        result.setToken(run.token);
+        result.setCreatedAt(run.createdAt.toString());
+        return result;
+    }
+
+    private Judge0Result withToken(Judge0Result compileError, LocalRun run) {
+        Judge0Result result = baseResult(run);
+        result.setStatus(compileError.getStatus());
+        result.setCompileOutput(compileError.getCompileOutput());
+        result.setFinishedAt(OffsetDateTime.now().toString());
+        return result;
+    }
+
+    private Judge0Result internalError(LocalRun run, String message) {
+        Judge0Result result = baseResult(run);
+        result.setStatus(JudgeResults.status(13, "Internal Error"));
+        result.setMessage(message);
+        result.setFinishedAt(OffsetDateTime.now().toString());
+        return result;
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        runs.values().removeIf(r -> r.result != null && now - r.finishedAtMillis() > resultTtlMs);
+    }
+
+    private static void deleteRecursively(Path dir) {
+        if (dir == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            log.warn("清理评测目录失败: {}", dir);
+        }
+    }
+
+    private enum Language {
+        C(50, "main.c"),
+        CPP(54, "main.cpp"),
+        JAVA(62, "Main.java"),
+        PYTHON(71, "main.py");
+
+        private final int judge0Id;
+        private final String sourceFile;
+
+        Language(int judge0Id, String sourceFile) {
+            this.judge0Id = judge0Id;
+            this.sourceFile = sourceFile;
+        }
+
+        static Language of(Integer judge0Id) {
+            for (Language language : values()) {
+                if (judge0Id != null && language.judge0Id == judge0Id) {
+                    return language;
+                }
+            }
+            return null;
+        }
+
+        List<String> compileCommand(LocalSandboxEngine engine) {
+            return switch (this) {
+                case C -> List.of(engine.gcc, "-O2", "-std=c11", "-o", "main", "main.c", "-lm");
+                case CPP -> List.of(engine.gpp, "-O2", "-std=c++17", "-o", "main", "main.cpp");
+                case JAVA -> List.of(engine.javac, "-encoding", "UTF-8", "Main.java");
+                // Python 不预编译，语法错误与 Judge0 一样在运行时以 NZEC 报告
+                case PYTHON -> null;
+            };
+        }
+
+        List<String> runCommand(LocalSandboxEngine engine, Path dir, int memoryKb) {
+            return switch (this) {
+                case C, CPP -> List.of(dir.resolve("main").toString());
+                case JAVA -> List.of(engine.java, "-Xmx" + memoryKb + "k", "-Xss64m", "-XX:+UseSerialGC",
+                        "-cp", dir.toString(), "Main");
+                case PYTHON -> List.of(engine.python, dir.resolve("main.py").toString());
+            };
+        }
+    }
+
+    /**
+     * 一批任务中同一份源码的编译，由第一个开始执行的任务触发，最后一个结束的任务负责删除目录。
+     */
+    private static class Compilation {
+        private final Language language;
+        private final String sourceCode;
+        private final AtomicInteger users = new AtomicInteger();
+        private CompletableFuture<Judge0Result> compiled;
+        private volatile Path dir;
+
+        Compilation(Language language, String sourceCode) {
+            this.language = language;
+            this.sourceCode = sourceCode;
+        }
+
+        Judge0Result awaitCompiled(LocalSandboxEngine engine) throws Exception {
+            CompletableFuture<Judge0Result> future;
+            boolean owner = false;
+            synchronized (this) {
+                if (compiled == null) {
+                    compiled = new CompletableFuture<>();
+                    owner = true;
+                }
+                future = compiled;
+            }
+            if (owner) {
+                try {
+                    future.complete(engine.compile(this));
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            }
+            return future.get();
+        }
+
+        void releaseUser() {
+            if (users.decrementAndGet() == 0) {
+                deleteRecursively(dir);
+            }
+        }
+    }
+
+    private static class LocalRun {
+        private final String token;
+        private final Judge0Submission submission;
+        private final Compilation compilation;
+        private final OffsetDateTime createdAt = OffsetDateTime.now();
+        private volatile boolean running;
+        private volatile Judge0Result result;
+        private volatile Process process;
+        private volatile boolean cancelled;
+
+        LocalRun(String token, Judge0Submission submission, Compilation compilation) {
+            this.token = token;
+            this.submission = submission;
+            this.compilation = compilation;
+        }
+
+        long finishedAtMillis() {
+            return result != null && result.getFinishedAt() != null
+                    ? OffsetDateTime.parse(result.getFinishedAt()).toInstant().toEpochMilli()
+                    : System.currentTimeMillis();
+        }
+
+        void kill() {
+            Process p = process;
+            if (p != null) {
+                p.descendants().forEach(ProcessHandle::destroyForcibly);
+                p.destroyForcibly();
+            }
+        }
+    }
+}
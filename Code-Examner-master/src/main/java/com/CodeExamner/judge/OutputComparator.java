@@ -0,0 +1,326 @@
+package com.CodeExamner.judge;
+
+import com.CodeExamner.entity.enums.OutputCompareMode;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.regex.Pattern;
+
+/**
+ * 流式输出比对：边读边比较实际输出与期望输出，遇到第一个差异即停止，只保留差异所在的那一行。
+ * 内存占用与输出大小无关（只缓存当前行的前 MAX_LINE_CHARS 个字符）。
+ *
+ * - EXACT：逐字符比较；
+ * - IGNORE_TRAILING_WHITESPACE：去掉每行行尾空白和末尾空行后逐字符比较；
+ * - IGNORE_CASE：同上，字符比较忽略大小写；
+ * - FLOAT_EPSILON：按空白分隔逐个 token 比较，两边都是十进制数时允许 epsilon 的绝对误差（数值大于 1 时为相对误差）。
+ */
+public final class OutputComparator {
+
+    // 差异行最多保留的字符数
+    private static final int MAX_LINE_CHARS = 200;
+
+    // 超过该长度的 token 不再按数值解析，分段逐字符比较
+    private static final int MAX_TOKEN_CHARS = 256;
+
+    private static final Pattern DECIMAL = Pattern.compile("[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?");
+
+    private OutputComparator() {
+    }
+
+    /**
+     * 比较结果。不一致时 line 为差异所在行号（从 1 开始，FLOAT_EPSILON 模式下按实际输出计），
+     * expectedLine / actualLine 为该行内容，对应一侧输出已结束时为 null。
+     */
+    public record Result(boolean matched, long line, String expectedLine, String actualLine) {
+
+        public static final Result MATCHED = new Result(true, 0, null, null);
+
+        public String describe() {
+            if (matched) {
+                return null;
+            }
+            return "第 " + line + " 行不一致：期望 " + quote(expectedLine, "期望输出已结束")
+                    + "，实际 " + quote(actualLine, "实际输出已结束");
+        }
+
+        private static String quote(String text, String whenMissing) {
+            return text != null ? "\"" + text + "\"" : whenMissing;
+        }
+    }
+
+    /**
+     * @param mode    为 null 时按 IGNORE_TRAILING_WHITESPACE 比较
+     * @param epsilon 为 null 时取 1e-6
+     */
+    public static Result compare(String expected, String actual, OutputCompareMode mode, Double epsilon) {
+        try {
+            return compare(new StringReader(expected != null ? expected : ""),
+                    new StringReader(actual != null ? actual : ""), mode, epsilon);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static Result compare(Reader expected, Reader actual, OutputCompareMode mode, Double epsilon) throws IOException {
+        OutputCompareMode m = mode != null ? mode : OutputCompareMode.IGNORE_TRAILING_WHITESPACE;
+        boolean trim = m != OutputCompareMode.EXACT;
+        Cursor exp = new Cursor(expected, trim);
+        Cursor act = new Cursor(actual, trim);
+        return m == OutputCompareMode.FLOAT_EPSILON
+                ? compareTokens(exp, act, epsilon != null ? epsilon : 1e-6)
+                : compareChars(exp, act, m == OutputCompareMode.IGNORE_CASE);
+    }
+
+    private static Result compareChars(Cursor exp, Cursor act, boolean ignoreCase) throws IOException {
+        while (true) {
+            int e = exp.read();
+            int a = act.read();
+            if (e == -1 && a == -1) {
+                return Result.MATCHED;
+            }
+            if (e != a && (!ignoreCase || e == -1 || a == -1 || !sameIgnoringCase((char) e, (char) a))) {
+                // 一侧已结束、另一侧还有下一行时，定位到多出来的那一行
+                if (e == -1 && a == '\n') {
+                    act.read();
+                } else if (a == -1 && e == '\n') {
+                    exp.read();
+                }
+                long line = Math.max(exp.line, act.line);
+                return new Result(false, line, exp.lineAt(line), act.lineAt(line));
+            }
+        }
+    }
+
+    private static Result compareTokens(Cursor exp, Cursor act, double epsilon) throws IOException {
+        StringBuilder e = new StringBuilder();
+        StringBuilder a = new StringBuilder();
+        while (true) {
+            boolean hasE = exp.skipWhitespace();
+            boolean hasA = act.skipWhitespace();
+            if (!hasE && !hasA) {
+                return Result.MATCHED;
+            }
+            if (!hasE || !hasA) {
+                return tokenMismatch(exp, act, hasE, hasA);
+            }
+            boolean endE = exp.readToken(e, MAX_TOKEN_CHARS);
+            boolean endA = act.readToken(a, MAX_TOKEN_CHARS);
+            if (endE && endA) {
+                if (!sameToken(e, a, epsilon)) {
+                    return tokenMismatch(exp, act, true, true);
+                }
+                continue;
+            }
+            // 超长 token：分段逐字符比较
+            while (true) {
+                if (endE != endA || !e.toString().contentEquals(a)) {
+                    return tokenMismatch(exp, act, true, true);
+                }
+                if (endE) {
+                    break;
+                }
+                endE = exp.readToken(e, MAX_TOKEN_CHARS);
+                endA = act.readToken(a, MAX_TOKEN_CHARS);
+            }
+        }
+    }
+
+    private static boolean sameToken(CharSequence e, CharSequence a, double epsilon) {
+        if (e.toString().contentEquals(a)) {
+            return true;
+        }
+        if (!DECIMAL.matcher(e).matches() || !DECIMAL.matcher(a).matches()) {
+            return false;
+        }
+        double expected = Double.parseDouble(e.toString());
+        double actual = Double.parseDouble(a.toString());
+        return Math.abs(expected - actual) <= epsilon * Math.max(1.0, Math.abs(expected));
+    }
+
+    private static boolean sameIgnoringCase(char e, char a) {
+        return Character.toLowerCase(e) == Character.toLowerCase(a)
+                || Character.toUpperCase(e) == Character.toUpperCase(a);
+    }
+
+    // 按 token 比较时两侧行号可能不同，以实际输出的行号为准，两侧各自给出所在行
+    private static Result tokenMismatch(Cursor exp, Cursor act, boolean hasE, boolean hasA) throws IOException {
+        String expectedLine = hasE ? exp.restOfLine() : null;
+        String actualLine = hasA ? act.restOfLine() : null;
+        return new Result(false, hasA ? act.line : exp.line, expectedLine, actualLine);
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    /**
+     * 按字符读取一侧输出，记录当前行号和当前行的前 MAX_LINE_CHARS 个字符。
+     * trim 为 true 时去掉每行行尾空白和末尾空行：空白先暂存，后面出现非空白字符时才输出，
+     * 换行之前的空白直接丢弃，输出结束时暂存的空白和换行全部丢弃。
+     */
+    private static class Cursor {
+
+        private final Reader in;
+        private final boolean trim;
+
+        private final char[] buffer = new char[8192];
+        private int bufferPos;
+        private int bufferLen;
+
+        private final StringBuilder pending = new StringBuilder();
+        private int pendingPos;
+
+        // 预读的一个字符，-2 表示没有
+        private int peeked = -2;
+
+        private long line = 1;
+        private boolean lineStarted;
+        private final StringBuilder current = new StringBuilder();
+        private boolean currentTruncated;
+        private boolean lastWasNewline;
+        private boolean ended;
+
+        Cursor(Reader in, boolean trim) {
+            this.in = in;
+            this.trim = trim;
+        }
+
+        int read() throws IOException {
+            int c;
+            if (peeked != -2) {
+                c = peeked;
+                peeked = -2;
+            } else {
+                c = trim ? readTrimmed() : next();
+            }
+            track(c);
+            return c;
+        }
+
+        private int peek() throws IOException {
+            if (peeked == -2) {
+                peeked = trim ? readTrimmed() : next();
+            }
+            return peeked;
+        }
+
+        /**
+         * 跳过空白，返回后面是否还有非空白字符。
+         */
+        boolean skipWhitespace() throws IOException {
+            while (isWhitespace(peek())) {
+                read();
+            }
+            return peek() != -1;
+        }
+
+        /**
+         * 把当前 token 的下一段（最多 max 个字符）读入 buffer，返回 token 是否已结束。
+         */
+        boolean readToken(StringBuilder buffer, int max) throws IOException {
+            buffer.setLength(0);
+            while (buffer.length() < max) {
+                int c = peek();
+                if (c == -1 || isWhitespace(c)) {
+                    return true;
+                }
+                buffer.append((char) read());
+            }
+            int c = peek();
+            return c == -1 || isWhitespace(c);
+        }
+
+        /**
+         * 读完当前行（最多保留 MAX_LINE_CHARS 个字符）并返回；输出已结束且该行为空时返回 null。
+         */
+        String restOfLine() throws IOException {
+            if (peeked != -2 && !lastWasNewline && !ended) {
+                // 预读的字符属于当前行的后续内容
+                int c = peeked;
+                peeked = -2;
+                track(c);
+            }
+            while (!lastWasNewline && !ended && current.length() < MAX_LINE_CHARS) {
+                track(trim ? readTrimmed() : next());
+            }
+            if (ended && !lineStarted) {
+                return null;
+            }
+            boolean more = currentTruncated || (!lastWasNewline && !ended);
+            return current + (more ? "..." : "");
+        }
+
+        // 当前位于第 n 行时返回该行内容，否则返回 null
+        String lineAt(long n) throws IOException {
+            return line == n ? restOfLine() : null;
+        }
+
+        private void track(int c) {
+            if (c == -1) {
+                ended = true;
+                return;
+            }
+            if (lastWasNewline) {
+                line++;
+                current.setLength(0);
+                currentTruncated = false;
+                lineStarted = false;
+            }
+            lastWasNewline = c == '\n';
+            lineStarted = true;
+            if (c != '\n' && c != '\r') {
+                if (current.length() < MAX_LINE_CHARS) {
+                    current.append((char) c);
+                } else {
+                    currentTruncated = true;
+                }
+            }
+        }
+
+        private int next() throws IOException {
+            if (bufferPos == bufferLen) {
+                bufferLen = in.read(buffer, 0, buffer.length);
+                bufferPos = 0;
+                if (bufferLen <= 0) {
+                    bufferLen = 0;
+                    return -1;
+                }
+            }
+            return buffer[bufferPos++];
+        }
+
+        private int readTrimmed() throws IOException {
+            if (pendingPos < pending.length()) {
+                return pending.charAt(pendingPos++);
+            }
+            pending.setLength(0);
+            pendingPos = 0;
+            int c = next();
+            if (!isWhitespace(c)) {
+                return c;
+            }
+            // 收集一段连续空白：换行前的空白是行尾空白，丢弃；最后一个换行之后的空白是下一行的行首缩进，保留
+            int lineStart = 0;
+            while (isWhitespace(c)) {
+                if (c == '\n') {
+                    pending.setLength(lineStart);
+                    pending.append('\n');
+                    lineStart = pending.length();
+                } else {
+                    pending.append((char) c);
+                }
+                c = next();
+            }
+            if (c == -1) {
+                // 输出末尾的空白和空行全部丢弃
+                pending.setLength(0);
+                return -1;
+            }
+            pending.append((char) c);
+            return pending.charAt(pendingPos++);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.CodeExamner.judge;
+
+import com.CodeExamner.entity.TestCase;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 测试数据的内容寻址存储：输入 / 期望输出以 gzip 压缩后存放在本地目录，文件名即内容的 SHA-256，
+ * 数据库中的 TestCase 只保存哈希和原始字节数。相同内容只存一份，写入后不再修改。
+ *
+ * 读取时把压缩文件以只读方式 mmap 后边解压边读，热门题目的数据直接由页缓存提供，不经过数据库。
+ * 尚未迁移的旧测试用例（哈希为空）仍读取数据库中的 TEXT 列。
+ * 多个应用节点部署时 dir 需指向共享目录。
+ */
+@Slf4j
+@Component
+public class TestDataStore implements InitializingBean {
+
+    @Value("${app.judge.test-data.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.judge.test-data.dir:./data/test-cases}")
+    private String dir;
+
+    private Path root;
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        this.root = Paths.get(dir).toAbsolutePath().normalize();
+        if (enabled) {
+            Files.createDirectories(root);
+            log.info("测试数据存储目录: {}", root);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 把测试用例的输入和期望输出写入存储，改为只在实体中保存哈希和大小。未启用时不做任何修改。
+     */
+    public void externalize(TestCase testCase) {
+        if (!enabled) {
+            return;
+        }
+        byte[] input = bytes(testCase.getInput());
+        byte[] expectedOutput = bytes(testCase.getExpectedOutput());
+        testCase.setInputHash(put(input));
+        testCase.setInputSize((long) input.length);
+        testCase.setExpectedOutputHash(put(expectedOutput));
+        testCase.setExpectedOutputSize((long) expectedOutput.length);
+        testCase.setInput(null);
+        testCase.setExpectedOutput(null);
+    }
+
+    /**
+     * 实体中已有内容（旧数据，或 withContent 得到的副本）时直接返回，否则按哈希从存储读取。
+     */
+    public String input(TestCase testCase) {
+        if (testCase.getInput() != null || testCase.getInputHash() == null) {
+            return testCase.getInput();
+        }
+        return read(testCase.getInputHash(), testCase.getInputSize());
+    }
+
+    public String expectedOutput(TestCase testCase) {
+        if (testCase.getExpectedOutput() != null || testCase.getExpectedOutputHash() == null) {
+            return testCase.getExpectedOutput();
+        }
+        return read(testCase.getExpectedOutputHash(), testCase.getExpectedOutputSize());
+    }
+
+    /**
+     * 以流的方式读取期望输出，用于逐行比对，不把整个文件解压到内存。
+     */
+    public Reader expectedOutputReader(TestCase testCase) {
+        if (testCase.getExpectedOutput() != null || testCase.getExpectedOutputHash() == null) {
+            return new StringReader(testCase.getExpectedOutput() != null ? testCase.getExpectedOutput() : "");
+        }
+        return new InputStreamReader(open(testCase.getExpectedOutputHash()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 返回带有完整输入和期望输出的副本，供接口返回或缓存；不修改受 JPA 管理的原实体。
+     */
+    public TestCase withContent(TestCase testCase) {
+        TestCase copy = new TestCase();
+        copy.setId(testCase.getId());
+        copy.setProblem(testCase.getProblem());
+        copy.setIsSample(testCase.getIsSample());
+        copy.setInputHash(testCase.getInputHash());
+        copy.setInputSize(testCase.getInputSize());
+        copy.setExpectedOutputHash(testCase.getExpectedOutputHash());
+        copy.setExpectedOutputSize(testCase.getExpectedOutputSize());
+        copy.setInput(input(testCase));
+        copy.setExpectedOutput(expectedOutput(testCase));
+        return copy;
+    }
+
+    /**
+     * 写入一份内容，返回其哈希。已存在相同内容时直接返回。
+     * 先写同目录下的临时文件再原子改名，并发写入同一内容或进程中途退出都不会留下不完整的文件。
+     */
+    private String put(byte[] content) {
+        String hash = sha256(content);
+        Path target = blobPath(hash);
+        if (Files.exists(target)) {
+            return hash;
+        }
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), hash, ".tmp");
+            try {
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+                    out.write(content);
+                }
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入测试数据失败: " + hash, e);
+        }
+        return hash;
+    }
+
+    /**
+     * 最多解压出记录的字节数，文件损坏或被替换成解压后更大的内容时报错，不会无限制地占用堆内存。
+     */
+    private String read(String hash, Long size) {
+        try (InputStream in = open(hash)) {
+            if (size == null || size < 0 || size >= Integer.MAX_VALUE) {
+                throw new IOException("测试数据大小未记录或过大: " + size);
+            }
+            byte[] content = in.readNBytes(size.intValue());
+            if (content.length != size || in.read() != -1) {
+                throw new IOException("测试数据大小与记录不符: " + hash);
+            }
+            return new String(content, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取测试数据失败: " + hash, e);
+        }
+    }
+
+    // 映射在通道关闭后仍然有效，由 GC 回收时解除
+    private InputStream open(String hash) {
+        Path path = blobPath(hash);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new GZIPInputStream(new ByteBufferInputStream(mapped), 8192);
+        } catch (IOException e) {
+            throw new UncheckedIOException("测试数据缺失或已损坏: " + hash, e);
+        }
+    }
+
+    // 按哈希前两位分子目录，避免单个目录下文件过多
+    private Path blobPath(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash + ".gz");
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return (text != null ? text : "").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
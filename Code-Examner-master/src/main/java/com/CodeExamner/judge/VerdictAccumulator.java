@@ -0,0 +1,140 @@
+package com.CodeExamner.judge;
+
+import com.CodeExamner.entity.Problem;
+import com.CodeExamner.entity.SubmissionDetail;
+import com.CodeExamner.entity.TestCase;
+import com.CodeExamner.entity.enums.JudgeStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按提交在内存中收集逐测试点的评测结果，收齐（或快速失败遇到第一个未通过的测试点）后才一次性写库，
+ * 避免每个测试点出结果都重新加载、保存整个提交。
+ *
+ * 每个提交同一时刻只有一批在途测试点（快速失败模式下为一波）。记录结果不加锁：
+ * 每个测试点只接受第一份结果，剩余计数归零或快速失败时，恰好有一个线程拿到 COMPLETE 并负责写库。
+ */
+@Component
+public class VerdictAccumulator {
+
+    public enum Outcome {
+        // 已记录，还有测试点未出结果
+        RECORDED,
+        // 本批已收齐，调用方负责写库
+        COMPLETE,
+        // 重复结果或本批已关闭，忽略
+        IGNORED
+    }
+
+    private final Map<Long, Batch> batches = new ConcurrentHashMap<>();
+
+    /**
+     * 登记一批已分发的测试点，需在登记 token 轮询之前调用，保证结果不会先于登记到达。
+     *
+     * @param judgedBefore 本批之前已出结果的测试点数，用于推送进度
+     */
+    public Batch open(Long submissionId, Long studentId, Problem problem, Collection<TestCase> testCases,
+                      int judgedBefore, int totalCases) {
+        Batch batch = new Batch(submissionId, studentId, problem, testCases, judgedBefore, totalCases);
+        batches.put(submissionId, batch);
+        return batch;
+    }
+
+    public Batch get(Long submissionId) {
+        return batches.get(submissionId);
+    }
+
+    public void remove(Batch batch) {
+        batches.remove(batch.submissionId, batch);
+    }
+
+    /**
+     * 关闭并返回打开时间早于 maxAgeMs 的批次（例如部分 token 在 Judge0 中丢失），由调用方把已收到的结果写库。
+     */
+    public List<Batch> closeStale(long maxAgeMs) {
+        long deadline = System.currentTimeMillis() - maxAgeMs;
+        return batches.values().stream()
+                .filter(b -> b.openedAt < deadline && b.closed.compareAndSet(false, true))
+                .toList();
+    }
+
+    public static final class Batch {
+
+        private final Long submissionId;
+        private final Long studentId;
+        private final Problem problem;
+        private final Map<Long, TestCase> testCases = new ConcurrentHashMap<>();
+        private final Map<Long, SubmissionDetail> verdicts = new ConcurrentHashMap<>();
+        private final AtomicInteger remaining;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final boolean failFast;
+        private final int judgedBefore;
+        private final int totalCases;
+        private final long openedAt = System.currentTimeMillis();
+
+        private Batch(Long submissionId, Long studentId, Problem problem, Collection<TestCase> testCases,
+                      int judgedBefore, int totalCases) {
+            this.submissionId = submissionId;
+            this.studentId = studentId;
+            this.problem = problem;
+            testCases.forEach(tc -> this.testCases.put(tc.getId(), tc));
+            this.remaining = new AtomicInteger(this.testCases.size());
+            this.failFast = Boolean.TRUE.equals(problem.getFailFast());
+            this.judgedBefore = judgedBefore;
+            this.totalCases = totalCases;
+        }
+
+        public boolean covers(Long testCaseId) {
+            return testCases.containsKey(testCaseId);
+        }
+
+        public TestCase testCase(Long testCaseId) {
+            return testCases.get(testCaseId);
+        }
+
+        /**
+         * 记录一个测试点的结果。verdict 只需填好状态、输出、耗时等字段，写库时再复制到对应的提交详情上。
+         */
+        public Outcome record(Long testCaseId, SubmissionDetail verdict) {
+            if (closed.get() || verdicts.putIfAbsent(testCaseId, verdict) != null) {
+                return Outcome.IGNORED;
+            }
+            boolean last = remaining.decrementAndGet() == 0;
+            boolean failed = failFast && verdict.getStatus() != JudgeStatus.ACCEPTED;
+            if ((last || failed) && closed.compareAndSet(false, true)) {
+                return Outcome.COMPLETE;
+            }
+            return Outcome.RECORDED;
+        }
+
+        public Long getSubmissionId() {
+            return submissionId;
+        }
+
+        public Long getStudentId() {
+            return studentId;
+        }
+
+        public Problem getProblem() {
+            return problem;
+        }
+
+        public Map<Long, SubmissionDetail> getVerdicts() {
+            return verdicts;
+        }
+
+        public int getJudgedCases() {
+            return judgedBefore + verdicts.size();
+        }
+
+        public int getTotalCases() {
+            return totalCases;
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package com.CodeExamner.judge.worker;
+
+import com.sun.management.OperatingSystemMXBean;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Java 评测 worker 进程的入口，由 JavaWorkerPoolEngine 以独立 JVM 启动并常驻复用。
+ *
+ * 只依赖 JDK：引擎会把本类的 class 文件单独导出到临时目录作为 worker 的 classpath。
+ * 与引擎之间通过 worker 的 stdin / stdout 以二进制帧通信：
+ * 启动并预热完成后写出 READY；之后每收到一个运行请求（已编译的类、标准输入、限制），
+ * 在一次性的类加载器中执行 Main.main，把捕获的输出和运行状态写回。
+ * 超时、调用 System.exit、启动过其他线程等情况下 worker 在回复后自行退出，由引擎补充新的 worker。
+ */
+public final class JavaWorkerMain {
+
+    public static final int READY = 0x52;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_EXCEPTION = 1;
+    public static final byte STATUS_TIME_LIMIT = 2;
+    public static final byte STATUS_EXIT = 3;
+
+    // 用户代码可以引用的包（不含子包）
+    private static final Set<String> ALLOWED_PACKAGES = Set.of(
+            "java.lang", "java.util", "java.util.function", "java.util.stream", "java.util.regex",
+            "java.util.concurrent", "java.util.concurrent.atomic", "java.util.concurrent.locks",
+            "java.math", "java.text", "java.time", "java.time.format", "java.time.temporal", "java.nio");
+
+    // 上述包以外可以引用的类：内存中的输入输出流，以及 lambda、字符串拼接、record 和模式匹配 switch 的引导方法
+    private static final Set<String> ALLOWED_CLASSES = Set.of(
+            "java.io.InputStream", "java.io.OutputStream", "java.io.Reader", "java.io.Writer",
+            "java.io.FilterInputStream", "java.io.FilterOutputStream",
+            "java.io.BufferedInputStream", "java.io.BufferedOutputStream", "java.io.BufferedReader", "java.io.BufferedWriter",
+            "java.io.InputStreamReader", "java.io.OutputStreamWriter", "java.io.PrintStream", "java.io.PrintWriter",
+            "java.io.DataInputStream", "java.io.DataOutputStream", "java.io.PushbackInputStream", "java.io.PushbackReader",
+            "java.io.LineNumberReader", "java.io.StreamTokenizer", "java.io.StringReader", "java.io.StringWriter",
+            "java.io.ByteArrayInputStream", "java.io.ByteArrayOutputStream", "java.io.CharArrayReader", "java.io.CharArrayWriter",
+            "java.io.Closeable", "java.io.Flushable", "java.io.Serializable",
+            "java.io.IOException", "java.io.EOFException", "java.io.UncheckedIOException", "java.io.UnsupportedEncodingException",
+            "java.nio.charset.Charset", "java.nio.charset.StandardCharsets",
+            "java.lang.invoke.LambdaMetafactory", "java.lang.invoke.StringConcatFactory",
+            "java.lang.runtime.ObjectMethods", "java.lang.runtime.SwitchBootstraps");
+
+    // 允许的包中仍然禁止引用的类（含其内部类）：进程、运行时、类加载器和模块
+    private static final Set<String> DENIED_CLASSES = Set.of(
+            "java.lang.Runtime", "java.lang.Process", "java.lang.ProcessBuilder", "java.lang.ProcessHandle",
+            "java.lang.ClassLoader", "java.lang.Module", "java.lang.ModuleLayer", "java.lang.Package",
+            "java.lang.StackWalker", "java.lang.SecurityManager", "java.util.ServiceLoader");
+
+    // 只允许使用其中部分成员的类：System 不能加载本地库、读环境变量或替换标准流，Class 不能按名字加载类或反射
+    private static final Map<String, Set<String>> ALLOWED_MEMBERS = Map.of(
+            "java/lang/System", Set.of("in", "out", "err", "currentTimeMillis", "nanoTime", "arraycopy",
+                    "lineSeparator", "identityHashCode", "getProperty", "exit"),
+            "java/lang/Class", Set.of("desiredAssertionStatus", "getName", "getSimpleName", "getTypeName",
+                    "isArray", "isInstance", "cast", "getComponentType", "hashCode", "equals", "toString"));
+
+    // 构造方法的第一个参数是文件名或 File 时会打开文件，这些构造方法禁止使用
+    private static final Set<String> FILE_OPENING_CLASSES = Set.of(
+            "java/io/PrintStream", "java/io/PrintWriter", "java/util/Formatter");
+
+    private static DataOutputStream channel;
+
+    // 当前运行的输出缓冲；用户调用 System.exit 时由关闭钩子把已有输出写回
+    private static volatile RunState current;
+
+    private JavaWorkerMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        DataInputStream requests = new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+        channel = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        Runtime.getRuntime().addShutdownHook(new Thread(JavaWorkerMain::onExit));
+
+        warmUp();
+        channel.writeByte(READY);
+        channel.flush();
+
+        while (true) {
+            Map<String, byte[]> classes = new HashMap<>();
+            int classCount;
+            try {
+                classCount = requests.readInt();
+            } catch (EOFException e) {
+                return;
+            }
+            for (int i = 0; i < classCount; i++) {
+                String name = requests.readUTF();
+                byte[] bytes = new byte[requests.readInt()];
+                requests.readFully(bytes);
+                classes.put(name, bytes);
+            }
+            String mainClass = requests.readUTF();
+            byte[] stdin = new byte[requests.readInt()];
+            requests.readFully(stdin);
+            long cpuLimitNanos = requests.readLong();
+            long wallLimitMillis = requests.readLong();
+            int maxOutputBytes = requests.readInt();
+            int stackSizeBytes = requests.readInt();
+
+            boolean reusable = run(classes, mainClass, stdin, cpuLimitNanos, wallLimitMillis, maxOutputBytes, stackSizeBytes);
+            if (!reusable) {
+                Runtime.getRuntime().halt(0);
+            }
+        }
+    }
+
+    /**
+     * 执行一次运行并回复，返回 worker 是否还能继续复用。
+     */
+    private static boolean run(Map<String, byte[]> classes, String mainClass, byte[] stdin, long cpuLimitNanos,
+                               long wallLimitMillis, int maxOutputBytes, int stackSizeBytes) throws IOException {
+        RunState state = new RunState(maxOutputBytes);
+        SandboxClassLoader loader = new SandboxClassLoader(classes);
+        ThreadGroup group = new ThreadGroup("submission");
+        Thread thread = new Thread(group, () -> {
+            try {
+                Method main = loader.loadClass(mainClass).getMethod("main", String[].class);
+                main.invoke(null, (Object) new String[0]);
+            } catch (InvocationTargetException e) {
+                state.failure = e.getCause();
+            } catch (Throwable e) {
+                state.failure = e;
+            }
+        }, "main", stackSizeBytes);
+        thread.setContextClassLoader(loader);
+
+        InputStream originalIn = System.in;
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        System.setIn(new ByteArrayInputStream(stdin));
+        System.setOut(new PrintStream(state.stdout, false, StandardCharsets.UTF_8));
+        System.setErr(new PrintStream(state.stderr, true, StandardCharsets.UTF_8));
+        current = state;
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        OperatingSystemMXBean os = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        long threadsStartedBefore = threads.getTotalStartedThreadCount();
+        // 按整个进程计 CPU 时间，用户代码把计算放到其他线程上也会计入
+        long cpuBefore = os.getProcessCpuTime();
+        long startedAt = System.nanoTime();
+        thread.start();
+        boolean timedOut = false;
+        long cpuNanos = 0;
+        try {
+            while (thread.isAlive()) {
+                thread.join(10);
+                cpuNanos = os.getProcessCpuTime() - cpuBefore;
+                if (cpuNanos > cpuLimitNanos || (System.nanoTime() - startedAt) / 1_000_000 > wallLimitMillis) {
+                    timedOut = true;
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            timedOut = true;
+        }
+        long wallNanos = System.nanoTime() - startedAt;
+        cpuNanos = Math.max(cpuNanos, os.getProcessCpuTime() - cpuBefore);
+
+        System.out.flush();
+        System.setIn(originalIn);
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+
+        byte status;
+        if (timedOut) {
+            status = STATUS_TIME_LIMIT;
+        } else if (state.failure != null) {
+            status = STATUS_EXCEPTION;
+            state.failure.printStackTrace(new PrintStream(state.stderr, true, StandardCharsets.UTF_8));
+        } else {
+            status = STATUS_OK;
+        }
+        // 超时、内存耗尽或用户代码启动过其他线程时，这个 JVM 的状态已不可信，回复后退出。
+        // 线程组统计不到虚拟线程，也统计不到线程池、定时器、并行流在其他线程组中创建的线程，
+        // 因此按 JVM 启动过的平台线程数判断：除本次运行的 main 线程外又有新线程启动即不再复用
+        // （虚拟线程运行在调度器按需启动的载体线程上，同样会使计数增加）
+        boolean spawnedThreads = threads.getTotalStartedThreadCount() - threadsStartedBefore > 1
+                || group.activeCount() > 0;
+        boolean reusable = !timedOut && !spawnedThreads && !(state.failure instanceof VirtualMachineError);
+        respond(state, status, cpuNanos, wallNanos, reusable);
+        return reusable;
+    }
+
+    private static void respond(RunState state, byte status, long cpuNanos, long wallNanos, boolean reusable)
+            throws IOException {
+        synchronized (JavaWorkerMain.class) {
+            if (state.responded) {
+                return;
+            }
+            state.responded = true;
+            current = null;
+            channel.writeByte(status);
+            channel.writeBoolean(reusable);
+            byte[] out = state.stdout.toByteArray();
+            channel.writeInt(out.length);
+            channel.write(out);
+            byte[] err = state.stderr.toByteArray();
+            channel.writeInt(err.length);
+            channel.write(err);
+            channel.writeLong(cpuNanos);
+            channel.writeLong(wallNanos);
+            channel.flush();
+        }
+    }
+
+    // 用户代码调用了 System.exit：把已有输出写回，退出码由引擎从进程退出值得到
+    private static void onExit() {
+        RunState state = current;
+        if (state == null) {
+            return;
+        }
+        try {
+            System.out.flush();
+            respond(state, STATUS_EXIT, 0, 0, false);
+        } catch (IOException ignored) {
+            // 引擎已经关闭了管道
+        }
+    }
+
+    // 预先加载并执行常用的输入输出和集合类，让后续运行免去类加载和解释执行的开销
+    private static void warmUp() {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            input.append(i).append(i % 10 == 9 ? '\n' : ' ');
+        }
+        byte[] bytes = input.toString().getBytes(StandardCharsets.UTF_8);
+        for (int round = 0; round < 20; round++) {
+            java.util.Scanner scanner = new java.util.Scanner(new ByteArrayInputStream(bytes));
+            java.util.List<Integer> values = new java.util.ArrayList<>();
+            while (scanner.hasNextInt()) {
+                values.add(scanner.nextInt());
+            }
+            try (java.io.BufferedReader reader = new java.io.BufferedReader(
+                    new java.io.InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    java.util.StringTokenizer tokens = new java.util.StringTokenizer(line);
+                    while (tokens.hasMoreTokens()) {
+                        Integer.parseInt(tokens.nextToken());
+                    }
+                }
+            } catch (IOException ignored) {
+                // 内存中的流不会出错
+            }
+            java.util.Map<Integer, Long> counts = new java.util.HashMap<>();
+            values.forEach(v -> counts.merge(v % 7, 1L, Long::sum));
+            java.io.PrintWriter writer = new java.io.PrintWriter(new ByteArrayOutputStream());
+            writer.printf("%d %.3f %s%n", counts.size(), Math.sqrt(values.size()), String.valueOf(values.get(0)));
+            writer.flush();
+        }
+    }
+
+    private static final class RunState {
+        private final BoundedOutput stdout;
+        private final BoundedOutput stderr;
+        private volatile Throwable failure;
+        private boolean responded;
+
+        RunState(int maxOutputBytes) {
+            this.stdout = new BoundedOutput(maxOutputBytes);
+            this.stderr = new BoundedOutput(Math.min(maxOutputBytes, 64 * 1024));
+        }
+    }
+
+    /**
+     * 只保留前 limit 个字节的输出缓冲，超出部分丢弃。
+     */
+    private static final class BoundedOutput extends OutputStream {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final int limit;
+
+        BoundedOutput(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (buffer.size() < limit) {
+                buffer.write(b);
+            }
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            int room = limit - buffer.size();
+            if (room > 0) {
+                buffer.write(b, off, Math.min(len, room));
+            }
+        }
+
+        synchronized byte[] toByteArray() {
+            return buffer.toByteArray();
+        }
+    }
+
+    /**
+     * 每次运行一个的一次性类加载器：只定义本次提交的类，JDK 类委托给平台类加载器，
+     * 但只放行白名单中的包和类，定义提交的类之前还会检查常量池中引用的方法和字段，
+     * 因此用户代码无法直接访问文件、网络、进程、反射和按名字加载类等能力。应用本身的类不可见。
+     * 这只是语言层面的限制，worker 进程本身仍需由引擎在操作系统层面隔离（见 JavaWorkerPoolEngine）。
+     */
+    private static final class SandboxClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+
+        SandboxClassLoader(Map<String, byte[]> classes) {
+            super("submission", ClassLoader.getPlatformClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    byte[] bytes = classes.get(name);
+                    if (bytes != null) {
+                        checkReferences(bytes);
+                        loaded = defineClass(name, bytes, 0, bytes.length);
+                    } else if (isAllowed(name)) {
+                        loaded = getParent().loadClass(name);
+                    } else {
+                        throw new SecurityException("禁止使用 " + name);
+                    }
+                }
+                if (resolve) {
+                    resolveClass(loaded);
+                }
+                return loaded;
+            }
+        }
+    }
+
+    private static boolean isAllowed(String name) {
+        int dollar = name.indexOf('$');
+        String outer = dollar > 0 ? name.substring(0, dollar) : name;
+        if (DENIED_CLASSES.contains(outer)) {
+            return false;
+        }
+        int dot = outer.lastIndexOf('.');
+        return ALLOWED_CLASSES.contains(outer) || (dot > 0 && ALLOWED_PACKAGES.contains(outer.substring(0, dot)));
+    }
+
+    /**
+     * 检查 class 文件常量池中的字段和方法引用，拒绝受限成员和会打开文件的构造方法。
+     * 引用的类本身由类加载器按白名单检查，这里只看成员。
+     */
+    private static void checkReferences(byte[] bytes) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            in.readInt();
+            in.readUnsignedShort();
+            in.readUnsignedShort();
+            int count = in.readUnsignedShort();
+            int[] tags = new int[count];
+            int[] first = new int[count];
+            int[] second = new int[count];
+            String[] utf8 = new String[count];
+            for (int i = 1; i < count; i++) {
+                tags[i] = in.readUnsignedByte();
+                switch (tags[i]) {
+                    case 1 -> utf8[i] = in.readUTF();
+                    case 3, 4 -> in.readInt();
+                    // long 和 double 占两个常量池位置
+                    case 5, 6 -> {
+                        in.readLong();
+                        i++;
+                    }
+                    case 7, 8, 16, 19, 20 -> first[i] = in.readUnsignedShort();
+                    case 9, 10, 11, 12, 17, 18 -> {
+                        first[i] = in.readUnsignedShort();
+                        second[i] = in.readUnsignedShort();
+                    }
+                    case 15 -> {
+                        in.readUnsignedByte();
+                        first[i] = in.readUnsignedShort();
+                    }
+                    default -> throw new SecurityException("无法识别的 class 文件");
+                }
+            }
+            for (int i = 1; i < count; i++) {
+                // Fieldref / Methodref / InterfaceMethodref -> Class + NameAndType
+                if (tags[i] < 9 || tags[i] > 11) {
+                    continue;
+                }
+                String owner = utf8[first[first[i]]];
+                String member = utf8[first[second[i]]];
+                String descriptor = utf8[second[second[i]]];
+                Set<String> allowed = ALLOWED_MEMBERS.get(owner);
+                boolean denied = allowed != null && !allowed.contains(member);
+                if (FILE_OPENING_CLASSES.contains(owner) && member.equals("<init>")
+                        && (descriptor.startsWith("(Ljava/lang/String;") || descriptor.startsWith("(Ljava/io/File;"))) {
+                    denied = true;
+                }
+                if (denied) {
+                    throw new SecurityException("禁止使用 " + owner.replace('/', '.') + "." + member);
+                }
+            }
+        } catch (SecurityException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            throw new SecurityException("无法识别的 class 文件");
+        }
+    }
+}
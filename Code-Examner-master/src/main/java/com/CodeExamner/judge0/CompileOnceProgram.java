@@ -0,0 +1,464 @@
+package com.CodeExamner.judge0;
+
+import com.CodeExamner.entity.TestCase;
+import com.CodeExamner.entity.enums.JudgeStatus;
+import com.CodeExamner.entity.enums.OutputCompareMode;
+import com.CodeExamner.judge.TestDataStore;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 编译型语言（C / C++ / Java）的“一次编译、多次运行”评测程序。
+ *
+ * 借助 Judge0 的 Multi-file program（language_id = 89）：把源码、测试输入（data）、
+ * 元数据（meta）、compile 脚本和 run 脚本打包成 additional_files，Judge0 只执行一次编译，
+ * 然后由 run 脚本依次把每个测试输入喂给编译产物，逐个测试点输出结果。
+ * 编译失败时 Judge0 直接返回 Compilation Error，整份提交只编译一次。
+ *
+ * 脚本与学生程序在同一个沙箱、同一个用户下运行，学生程序能读到沙箱内的任何文件。因此：
+ * - 期望输出不进入沙箱，快速失败只比对规范化后输出的 SHA-256；
+ * - 分隔符、测试点顺序和哈希放在 meta 中，测试输入拼接为 data，run 脚本在运行学生程序之前
+ *   把 meta 读入内存、打开 data 后删除 meta、data、compile 和脚本自身，每个测试点只把当前输入写出为 in.txt；
+ * - 耗时按子进程的 CPU 时间（user + sys）计算，时间限制由 ulimit -t 和 CPU 时间比较共同判定，
+ *   与逐测试点评测时 Judge0 的 cpu_time_limit 含义一致（Java 同样包含 JVM 启动的 CPU 时间），
+ *   另以 timeout 限制墙钟时间，防止 sleep 等不占 CPU 的挂起；
+ * - 每个测试点结束后结束沙箱内除脚本以外的所有进程，测试点结束时仍有进程残留（例如脱离父进程的后台进程）
+ *   即判为超时，后台进程不能把计算或输出带到后面的测试点。
+ *
+ * 已知的不足：已经退出且未被等待的孙进程消耗的 CPU 时间不计入该测试点；通过 /proc 读取父进程打开的文件
+ * 可以绕过删除。因此默认关闭（app.judge0.compile-once.enabled），只在信任提交者或更看重吞吐量时开启。
+ *
+ * run 脚本的标准输出格式（BOUNDARY 为每次随机生成的分隔符，位于第一行）：
+ * <pre>
+ * BOUNDARY
+ * \nBOUNDARY:测试用例ID:退出码:CPU耗时毫秒\n该测试点的标准输出
+ * ...
+ * \nBOUNDARY:END\n
+ * </pre>
+ * 标准错误使用同样的分隔行，便于定位每个测试点的运行时错误信息。
+ * 解析时校验每个分隔行：未知或格式错误的测试点忽略，重复出现的测试点记为 SYSTEM_ERROR，
+ * 整体无法解析时没有结果的测试点都记为 SYSTEM_ERROR，不抛出异常。
+ * 没有 END 行（任务中途被终止）时最后一个测试点的输出可能不完整，不采用其结果。
+ */
+@Component
+public class CompileOnceProgram {
+
+    public static final int MULTI_FILE_LANGUAGE_ID = 89;
+
+    // timeout 命令超时后的退出码（124：SIGTERM 生效，137：被 SIGKILL 强制结束）
+    private static final int EXIT_TIMEOUT = 124;
+    private static final int EXIT_KILLED = 137;
+    // 超过 ulimit -t 收到 SIGXCPU，或 run 脚本发现 CPU 时间超过限制
+    private static final int EXIT_CPU_LIMIT = 152;
+
+    // 每个测试点保留的标准错误长度
+    private static final int MAX_STDERR_PER_CASE = 4096;
+
+    @Value("${app.judge0.compile-once.enabled:false}")
+    private boolean enabled;
+
+    // 对应 Judge0 的 MAX_CPU_TIME_LIMIT / MAX_WALL_TIME_LIMIT（秒），整个打包任务不能超过该上限
+    @Value("${app.judge0.compile-once.max-cpu-time-limit:15}")
+    private double maxCpuTimeLimit;
+
+    @Value("${app.judge0.compile-once.max-wall-time-limit:20}")
+    private double maxWallTimeLimit;
+
+    // 为编译预留的时间（秒）
+    @Value("${app.judge0.compile-once.compile-time-allowance:5}")
+    private double compileTimeAllowance;
+
+    // 对应 Judge0 的 MAX_MEMORY_LIMIT（KB）
+    @Value("${app.judge0.compile-once.max-memory-limit-kb:512000}")
+    private int maxMemoryLimitKb;
+
+    // Judge0 镜像内编译器的路径（与单文件语言 50 / 54 / 62 使用同一套工具链）
+    @Value("${app.judge0.compile-once.gcc:/usr/local/gcc-9.2.0/bin/gcc}")
+    private String gcc;
+
+    @Value("${app.judge0.compile-once.gpp:/usr/local/gcc-9.2.0/bin/g++}")
+    private String gpp;
+
+    @Value("${app.judge0.compile-once.javac:/usr/local/openjdk13/bin/javac}")
+    private String javac;
+
+    @Value("${app.judge0.compile-once.java:/usr/local/openjdk13/bin/java}")
+    private String java;
+
+    @Autowired
+    private TestDataStore testDataStore;
+
+    /**
+     * 该语言是否适合一次编译、多次运行。
+     * 整个打包任务的时间限制取 测试点数 × 单点限制 与 Judge0 上限中的较小值，
+     * 上限不足以跑完全部测试点时，由调用方把剩余测试点重新打包继续运行。
+     */
+    public boolean supports(String language, double cpuTimeLimit) {
+        return enabled && language(language) != null && compileTimeAllowance + cpuTimeLimit <= maxCpuTimeLimit;
+    }
+
+    /**
+     * 构造打包后的 Judge0 评测任务。
+     *
+     * @param cpuTimeLimit  单个测试点的时间限制（秒）
+     * @param memoryLimitMb 单个测试点的内存限制（MB）
+     * @param failFast      为 true 时 run 脚本在第一个未通过的测试点后停止
+     * @param compareMode   题目的输出比对方式；只有脚本内的比对规则不比它宽松时才在脚本内比对输出，否则脚本只按退出码停止
+     */
+    public Judge0Submission build(String language, String sourceCode, List<TestCase> testCases,
+                                  double cpuTimeLimit, int memoryLimitMb, boolean failFast,
+                                  OutputCompareMode compareMode) {
+        Lang lang = language(language);
+        if (lang == null) {
+            throw new IllegalArgumentException("不支持一次编译评测的语言: " + language);
+        }
+        String boundary = "@@" + UUID.randomUUID().toString().replace("-", "") + "@@";
+        boolean compareInScript = failFast && (compareMode == null || compareMode == OutputCompareMode.EXACT
+                || compareMode == OutputCompareMode.IGNORE_TRAILING_WHITESPACE);
+
+        // meta 每行一个测试点：ID、输入字节数、期望输出哈希（不在脚本内比对时为 -）
+        StringBuilder meta = new StringBuilder(boundary).append('\n');
+        StringBuilder data = new StringBuilder();
+        for (TestCase testCase : testCases) {
+            String input = testDataStore.input(testCase);
+            input = input != null ? input : "";
+            String hash = compareInScript ? sha256(normalize(testDataStore.expectedOutput(testCase))) : "-";
+            meta.append(testCase.getId()).append(' ')
+                    .append(input.getBytes(StandardCharsets.UTF_8).length).append(' ')
+                    .append(hash).append('\n');
+            data.append(input);
+        }
+
+        Map<String, String> files = new HashMap<>();
+        files.put(lang.sourceFile, sourceCode != null ? sourceCode : "");
+        files.put("compile", compileScript(lang));
+        files.put("run", runScript(lang, cpuTimeLimit, memoryLimitMb, failFast, compareInScript));
+        files.put("meta", meta.toString());
+        files.put("data", data.toString());
+
+        double totalTime = Math.min(maxCpuTimeLimit, compileTimeAllowance + testCases.size() * cpuTimeLimit);
+
+        Judge0Submission submission = new Judge0Submission();
+        submission.setLanguageId(MULTI_FILE_LANGUAGE_ID);
+        submission.setAdditionalFiles(zip(files));
+        submission.setCpuTimeLimit(totalTime);
+        submission.setWallTimeLimit(Math.min(maxWallTimeLimit, totalTime * 1.5));
+        // JVM 需要额外的地址空间，整体任务的内存限制放宽到上限，单测试点限制由 run 脚本负责
+        submission.setMemoryLimit(maxMemoryLimitKb);
+        return submission;
+    }
+
+    /**
+     * 解析打包任务的评测结果，返回 测试用例ID -> 该测试点的结果。
+     * 只决定运行状态，输出是否正确由调用方与期望输出比对；
+     * 打包任务中途被终止（整体时间耗尽或沙箱错误）或输出超过上限被截断时，没有完整结果的测试点不会出现在结果中。
+     */
+    public Map<Long, CaseOutcome> parse(Judge0Result result, List<Long> testCaseIds) {
+        Map<Long, CaseOutcome> outcomes = new HashMap<>();
+        Integer statusId = result.getStatus() != null ? result.getStatus().getId() : null;
+
+        // 编译失败：所有测试点统一记为编译错误
+        if (statusId != null && statusId == 6) {
+            for (Long id : testCaseIds) {
+                CaseOutcome outcome = new CaseOutcome();
+                outcome.setStatus(JudgeStatus.COMPILATION_ERROR);
+                outcome.setErrorMessage(result.getCompileOutput());
+                outcomes.put(id, outcome);
+            }
+            return outcomes;
+        }
+
+        try {
+            parseCases(result, testCaseIds, outcomes);
+        } catch (RuntimeException e) {
+            // 输出格式被破坏：已解析的结果不可信的部分由 parseCases 标记，其余测试点记为系统错误，不重新评测
+            for (Long id : testCaseIds) {
+                outcomes.putIfAbsent(id, systemError("评测输出无法解析"));
+            }
+        }
+        return outcomes;
+    }
+
+    private void parseCases(Judge0Result result, List<Long> testCaseIds, Map<Long, CaseOutcome> outcomes) {
+        String stdout = result.getStdout() != null ? result.getStdout() : "";
+        int firstLineEnd = stdout.indexOf('\n');
+        String boundary = firstLineEnd > 0 ? stdout.substring(0, firstLineEnd) : null;
+        if (boundary == null) {
+            return;
+        }
+        Set<Long> expected = new HashSet<>(testCaseIds);
+        Map<String, String> stderrByCase = splitStderr(result.getStderr(), boundary);
+        String marker = "\n" + boundary + ":";
+        int pos = stdout.indexOf(marker, firstLineEnd);
+        boolean ended = false;
+        Long last = null;
+        while (pos >= 0) {
+            int headerEnd = stdout.indexOf('\n', pos + 1);
+            if (headerEnd < 0) {
+                break;
+            }
+            String[] header = stdout.substring(pos + marker.length(), headerEnd).split(":", -1);
+            if (header.length == 1 && "END".equals(header[0])) {
+                ended = true;
+                break;
+            }
+            int next = stdout.indexOf(marker, headerEnd);
+            pos = next;
+
+            Long id = parseLong(header[0]);
+            if (id == null || !expected.contains(id)) {
+                continue; // 不属于本次任务的分隔行
+            }
+            if (outcomes.containsKey(id)) {
+                outcomes.put(id, systemError("测试点结果重复，输出格式被破坏"));
+                continue;
+            }
+            Long exitCode = header.length == 3 ? parseLong(header[1]) : null;
+            Long timeUsed = header.length == 3 ? parseLong(header[2]) : null;
+            if (exitCode == null || timeUsed == null) {
+                outcomes.put(id, systemError("测试点结果格式错误"));
+                continue;
+            }
+
+            CaseOutcome outcome = new CaseOutcome();
+            outcome.setTimeUsed((int) Math.min(timeUsed, Integer.MAX_VALUE));
+            outcome.setOutput(stdout.substring(headerEnd + 1, next >= 0 ? next : stdout.length()));
+            outcome.setErrorMessage(stderrByCase.get(header[0]));
+            if (next < 0 && Boolean.TRUE.equals(result.getStdoutTruncated())) {
+                // 整体输出超过上限被截断：该测试点输出不完整，判为答案错误，之后的测试点没有结果
+                outcome.setStatus(JudgeStatus.WRONG_ANSWER);
+                outcome.setErrorMessage("输出过长（整体共 " + result.getStdoutSize() + " 字节），超过上限");
+                outcomes.put(id, outcome);
+                return;
+            }
+            if (exitCode == 0) {
+                outcome.setStatus(JudgeStatus.ACCEPTED);
+            } else if (exitCode == EXIT_TIMEOUT || exitCode == EXIT_KILLED || exitCode == EXIT_CPU_LIMIT) {
+                outcome.setStatus(JudgeStatus.TIME_LIMIT_EXCEEDED);
+            } else if (outcome.getErrorMessage() != null && outcome.getErrorMessage().contains("OutOfMemoryError")) {
+                outcome.setStatus(JudgeStatus.MEMORY_LIMIT_EXCEEDED);
+            } else {
+                outcome.setStatus(JudgeStatus.RUNTIME_ERROR);
+            }
+            outcomes.put(id, outcome);
+            last = id;
+        }
+        if (!ended && last != null) {
+            // 任务在输出最后一个测试点的过程中被终止，该测试点留给调用方重新运行
+            outcomes.remove(last);
+        }
+    }
+
+    private static CaseOutcome systemError(String message) {
+        CaseOutcome outcome = new CaseOutcome();
+        outcome.setStatus(JudgeStatus.SYSTEM_ERROR);
+        outcome.setErrorMessage(message);
+        return outcome;
+    }
+
+    private static Long parseLong(String text) {
+        try {
+            return Long.valueOf(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private Map<String, String> splitStderr(String stderr, String boundary) {
+        Map<String, String> byCase = new HashMap<>();
+        if (stderr == null) {
+            return byCase;
+        }
+        String marker = boundary + ":";
+        int pos = stderr.indexOf(marker);
+        while (pos >= 0) {
+            int headerEnd = stderr.indexOf('\n', pos);
+            if (headerEnd < 0) {
+                break;
+            }
+            String id = stderr.substring(pos + marker.length(), headerEnd);
+            int next = stderr.indexOf("\n" + marker, headerEnd);
+            String text = stderr.substring(headerEnd + 1, next >= 0 ? next : stderr.length());
+            if (!text.isEmpty()) {
+                byCase.put(id, text);
+            }
+            pos = next >= 0 ? next + 1 : -1;
+        }
+        return byCase;
+    }
+
+    private String compileScript(Lang lang) {
+        switch (lang) {
+            case C:
+                return "#!/bin/bash\n" + gcc + " -O2 -o main main.c -lm\n";
+            case CPP:
+                return "#!/bin/bash\n" + gpp + " -O2 -std=c++17 -o main main.cpp\n";
+            case JAVA:
+            default:
+                return "#!/bin/bash\n" + javac + " -encoding UTF-8 Main.java\n";
+        }
+    }
+
+    private String runScript(Lang lang, double cpuTimeLimit, int memoryLimitMb, boolean failFast,
+                             boolean compareInScript) {
+        // ulimit -t 只能取整秒，超出部分由脚本比较实际 CPU 时间判定；墙钟时间留出余量，只防止挂起
+        long cpuLimitMs = Math.round(cpuTimeLimit * 1000);
+        String limits = "ulimit -t " + (long) Math.ceil(cpuTimeLimit) + "; ";
+        String timeout = "timeout -k 1 " + (cpuTimeLimit * 3 + 1);
+        String command;
+        if (lang == Lang.JAVA) {
+            command = limits + timeout + " " + java + " -Xmx" + memoryLimitMb + "m -Xss64m -cp . Main";
+        } else {
+            command = limits + "ulimit -v " + (memoryLimitMb * 1024) + "; " + timeout + " ./main";
+        }
+
+        // 快速失败时在脚本内忽略行尾空白和末尾空行比对，不通过即停止；该规则会误判宽松比对方式下的正确输出，此时只看退出码
+        String failFastCheck = "";
+        if (compareInScript) {
+            failFastCheck = "  if [ \"$code\" -ne 0 ] || [ \"$(norm out.txt | sha256sum | cut -d' ' -f1)\" != \"${H[$id]}\" ]; then break; fi\n";
+        } else if (failFast) {
+            failFastCheck = "  if [ \"$code\" -ne 0 ]; then break; fi\n";
+        }
+
+        return "#!/bin/bash\n"
+                // 学生程序运行前：元数据读入内存，打开测试数据，然后删除这些文件和脚本自身
+                + "declare -A H\n"
+                + "ids=(); lens=()\n"
+                + "{ read -r B; while read -r id len h; do ids+=(\"$id\"); lens+=(\"$len\"); H[$id]=$h; done; } < meta\n"
+                + "exec 3< data\n"
+                + "rm -f meta data compile run\n"
+                + "norm() { awk '{ sub(/[ \\t\\r]+$/, \"\"); l[NR] = $0 } "
+                + "END { n = NR; while (n > 0 && l[n] == \"\") n--; for (i = 1; i <= n; i++) print l[i] }' \"$1\"; }\n"
+                // 结束除脚本自身及其父进程以外的所有进程（跳过僵尸进程），有进程被结束时返回 0
+                + "reap() { local p s k=1; for p in /proc/[0-9]*; do p=${p#/proc/}; "
+                + "case \" 1 $$ $PPID \" in *\" $p \"*) continue ;; esac; "
+                + "read -r s < \"/proc/$p/stat\" 2> /dev/null || continue; s=${s##*) }; [ \"${s%% *}\" = Z ] && continue; "
+                + "kill -9 \"$p\" 2> /dev/null && k=0; done; return $k; }\n"
+                + "echo \"$B\"\n"
+                + "for i in \"${!ids[@]}\"; do\n"
+                + "  id=${ids[i]}\n"
+                + "  head -c \"${lens[i]}\" <&3 > in.txt\n"
+                // 在子 shell 中设置限制并运行，随后用 times 取子进程累计的 CPU 时间（第二行），经命令替换的管道取回，
+                // 学生程序拿不到这个文件描述符；被 SIGKILL 时 shell 的提示信息丢弃
+                + "  t=$( (" + command + " < in.txt > out.txt 2> err.txt 3<&-; c=$?; times; exit $c) 2> /dev/null )\n"
+                + "  code=$?\n"
+                + "  ms=$(echo \"$t\" | awk 'END { split($1 \" \" $2, p, /[ms ]+/); "
+                + "printf \"%d\", (p[1] * 60 + p[2] + p[3] * 60 + p[4]) * 1000 }')\n"
+                + "  if [ \"${ms:-0}\" -gt " + cpuLimitMs + " ]; then code=" + EXIT_CPU_LIMIT + "; fi\n"
+                // 测试点结束后仍在运行的进程不受上面的计时约束，结束它们并判为超时
+                + "  if reap; then code=" + EXIT_CPU_LIMIT + "; fi\n"
+                + "  rm -f in.txt\n"
+                + "  printf '\\n%s:%s:%s:%s\\n' \"$B\" \"$id\" \"$code\" \"${ms:-0}\"\n"
+                + "  cat out.txt\n"
+                + "  printf '\\n%s:%s\\n' \"$B\" \"$id\" >&2\n"
+                + "  head -c " + MAX_STDERR_PER_CASE + " err.txt >&2\n"
+                + failFastCheck
+                + "done\n"
+                + "printf '\\n%s:END\\n' \"$B\"\n";
+    }
+
+    /**
+     * 与 run 脚本中的 norm 一致：去掉每行末尾的空白和末尾的空行，每行以换行结尾。
+     */
+    static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String[] lines = text.split("\n", -1);
+        // 以换行结尾时 split 多出一个空串，awk 不把它算作一行
+        int n = text.endsWith("\n") ? lines.length - 1 : lines.length;
+        for (int i = 0; i < n; i++) {
+            lines[i] = lines[i].replaceAll("[ \t\r]+$", "");
+        }
+        while (n > 0 && lines[n - 1].isEmpty()) {
+            n--;
+        }
+        StringBuilder normalized = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            normalized.append(lines[i]).append('\n');
+        }
+        return normalized.toString();
+    }
+
+    private static String sha256(String text) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    private String zip(Map<String, String> files) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+                for (Map.Entry<String, String> file : files.entrySet()) {
+                    zip.putNextEntry(new ZipEntry(file.getKey()));
+                    zip.write(file.getValue().getBytes(StandardCharsets.UTF_8));
+                    zip.closeEntry();
+                }
+            }
+            return Base64.getEncoder().encodeToString(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new RuntimeException("打包评测文件失败: " + e.getMessage());
+        }
+    }
+
+    private Lang language(String language) {
+        if (language == null) {
+            return Lang.JAVA; // 与 mapLanguageToJudge0 一致，默认 Java
+        }
+        switch (language.trim().toLowerCase()) {
+            case "c":
+                return Lang.C;
+            case "cpp":
+            case "c++":
+            case "cpp17":
+                return Lang.CPP;
+            case "java":
+                return Lang.JAVA;
+            default:
+                return null;
+        }
+    }
+
+    private enum Lang {
+        C("main.c"), CPP("main.cpp"), JAVA("Main.java");
+
+        private final String sourceFile;
+
+        Lang(String sourceFile) {
+            this.sourceFile = sourceFile;
+        }
+    }
+
+    /**
+     * 打包任务中单个测试点的运行结果。
+     */
+    @Data
+    public static class CaseOutcome {
+        private JudgeStatus status;
+        private Integer timeUsed;
+        private String output;
+        private String errorMessage;
+    }
+}
@@ -0,0 +1,67 @@
+package com.CodeExamner.judge0;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Judge0 调用的并发隔离：同时进行中的调用超过上限时立即拒绝，
+ * 防止 Judge0 变慢时请求无限堆积、拖垮本服务。
+ */
+@Component
+@ConditionalOnProperty(name = "app.judge.engine", havingValue = "judge0", matchIfMissing = true)
+public class Judge0Bulkhead implements InitializingBean {
+
+    @Value("${app.judge0.bulkhead.max-concurrent-calls:64}")
+    private int maxConcurrentCalls;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Semaphore permits;
+
+    private Counter rejectedCounter;
+
+    @Override
+    public void afterPropertiesSet() {
+        this.permits = new Semaphore(maxConcurrentCalls);
+        Gauge.builder("judge0.bulkhead.available", permits, Semaphore::availablePermits)
+                .description("Judge0并发隔离剩余可用的调用数")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("judge0.calls.rejected")
+                .tag("reason", "bulkhead_full")
+                .description("并发隔离已满而被拒绝的Judge0调用次数")
+                .register(meterRegistry);
+    }
+
+    public boolean tryAcquire() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        rejectedCounter.increment();
+        return false;
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int getAvailable() {
+        return permits.availablePermits();
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public double getRejectedCount() {
+        return rejectedCounter.count();
+    }
+}
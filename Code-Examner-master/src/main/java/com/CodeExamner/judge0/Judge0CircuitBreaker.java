@@ -0,0 +1,171 @@
+package com.CodeExamner.judge0;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Judge0 调用的熔断器。
+ *
+ * CLOSED：正常放行，按最近 window-size 次调用统计失败率，超过阈值后打开；
+ * OPEN：直接拒绝，open-duration-ms 之后进入 HALF_OPEN；
+ * HALF_OPEN：只放行 half-open-calls 次试探调用，全部成功则关闭，任一失败重新打开。
+ * 只有连接失败、超时、5xx 等说明评测服务本身有问题的情况计为失败。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.judge.engine", havingValue = "judge0", matchIfMissing = true)
+public class Judge0CircuitBreaker implements InitializingBean {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    @Value("${app.judge0.circuit.window-size:20}")
+    private int windowSize;
+
+    // 窗口内至少有这么多次调用才计算失败率，避免启动时一两次失败就打开
+    @Value("${app.judge0.circuit.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${app.judge0.circuit.failure-rate-threshold:50}")
+    private int failureRateThreshold;
+
+    @Value("${app.judge0.circuit.open-duration-ms:30000}")
+    private long openDurationMs;
+
+    @Value("${app.judge0.circuit.half-open-calls:3}")
+    private int halfOpenCalls;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private State state = State.CLOSED;
+
+    // 最近 windowSize 次调用的结果环，true 表示失败
+    private boolean[] outcomes;
+    private int outcomeCount;
+    private int outcomeIndex;
+    private int failureCount;
+
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    private Counter rejectedCounter;
+
+    @Override
+    public void afterPropertiesSet() {
+        this.outcomes = new boolean[windowSize];
+        Gauge.builder("judge0.circuit.state", this, b -> b.getState().ordinal())
+                .description("Judge0熔断器状态：0=CLOSED，1=OPEN，2=HALF_OPEN")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("judge0.calls.rejected")
+                .tag("reason", "circuit_open")
+                .description("熔断器打开期间被拒绝的Judge0调用次数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 申请一次调用许可；拒绝时返回 false，调用方不应发起请求，也不需要回报结果。
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDurationMs) {
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && halfOpenPermits > 0) {
+            halfOpenPermits--;
+            return true;
+        }
+        rejectedCounter.increment();
+        return false;
+    }
+
+    /**
+     * 拿到许可但最终没有发出请求时归还许可，不计入成功或失败。
+     */
+    public synchronized void releasePermit() {
+        if (state == State.HALF_OPEN && halfOpenPermits < halfOpenCalls - halfOpenSuccesses) {
+            halfOpenPermits++;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSuccesses >= halfOpenCalls) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && outcomeCount >= minimumCalls
+                && failureCount * 100 >= failureRateThreshold * outcomeCount) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDurationMs) {
+            // 已到试探时间，但要等下一次调用才真正进入 HALF_OPEN
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    public boolean isClosed() {
+        return getState() == State.CLOSED;
+    }
+
+    public double getRejectedCount() {
+        return rejectedCounter.count();
+    }
+
+    private void record(boolean failed) {
+        if (outcomeCount == windowSize) {
+            if (outcomes[outcomeIndex]) {
+                failureCount--;
+            }
+        } else {
+            outcomeCount++;
+        }
+        outcomes[outcomeIndex] = failed;
+        if (failed) {
+            failureCount++;
+        }
+        outcomeIndex = (outcomeIndex + 1) % windowSize;
+    }
+
+    private void transitionTo(State next) {
+        log.warn("Judge0熔断器状态变更: {} -> {}", state, next);
+        state = next;
+        switch (next) {
+            case OPEN -> openedAt = System.currentTimeMillis();
+            case HALF_OPEN -> {
+                halfOpenPermits = halfOpenCalls;
+                halfOpenSuccesses = 0;
+            }
+            case CLOSED -> {
+                outcomeCount = 0;
+                outcomeIndex = 0;
+                failureCount = 0;
+            }
+        }
+    }
+}
@@ -1,69 +1,587 @@
 // judge0/Judge0Client.java
 package com.CodeExamner.judge0;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.util.StringUtils;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+/**
+ * Judge0 HTTP 客户端。
+ *
+ * 基于 JDK HttpClient：连接复用（HTTP/1.1 keep-alive，可选 HTTP/2）、可配置的连接 / 请求超时，
+ * 并用 max-connections 限制同时在途的请求数，超出的请求排队等待而不是阻塞调用线程。
+ * 以 *Async 结尾的方法返回 CompletableFuture；同名的同步方法只是对异步方法的薄封装，保持原有语义。
+ *
+ * 支持多个 Judge0 节点（app.judge0.base-urls）：新任务路由到在途 token 最少的健康节点，
+ * 创建失败时换下一个节点重试；结果查询固定发往创建该 token 的节点。
+ * 节点连续失败后被摘除，定时健康检查连续成功后自动恢复。
+ *
+ * 所有对外调用都经过熔断器和并发隔离：熔断打开或并发已满时立即以 Judge0UnavailableException 失败。
+ */
 @Slf4j
 @Component
-public class Judge0Client {
+@ConditionalOnProperty(name = "app.judge.engine", havingValue = "judge0", matchIfMissing = true)
+public class Judge0Client implements InitializingBean, DisposableBean {
 
-    // 从 application.yml 的 app.judge0.base-url 读取，默认为本机 2358 端口
-    @Value("${app.judge0.base-url:http://localhost:2358}")
-    private String baseUrl;
+    // Judge0 节点列表（逗号分隔），未配置时退回单节点的 app.judge0.base-url，默认为本机 2358 端口
+    @Value("${app.judge0.base-urls:${app.judge0.base-url:http://localhost:2358}}")
+    private String[] baseUrls;
 
-    private final RestTemplate restTemplate;
+    // Judge0 单次批量提交的上限（对应 Judge0 的 MAX_SUBMISSION_BATCH_SIZE，默认 20）
+    @Value("${app.judge0.max-batch-size:20}")
+    private int maxBatchSize;
 
-    public Judge0Client() {
-        this.restTemplate = new RestTemplate();
+    @Value("${app.judge0.http.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Value("${app.judge0.http.request-timeout-ms:10000}")
+    private long requestTimeoutMs;
+
+    // 同时在途的请求上限（HTTP/1.1 下即最大连接数）
+    @Value("${app.judge0.http.max-connections:32}")
+    private int maxConnections;
+
+    // HTTP_1_1 或 HTTP_2
+    @Value("${app.judge0.http.version:HTTP_1_1}")
+    private HttpClient.Version httpVersion;
+
+    // 连续失败多少次后摘除节点
+    @Value("${app.judge0.health.fall-threshold:3}")
+    private int fallThreshold;
+
+    // 摘除的节点连续健康检查成功多少次后恢复
+    @Value("${app.judge0.health.rise-threshold:2}")
+    private int riseThreshold;
+
+    // 批量查询时只取结果回写需要的字段，减少响应体积
+    private static final String RESULT_FIELDS =
+            "token,status,stdout,stderr,compile_output,message,time,memory,exit_code,exit_signal,"
+                    + "created_at,finished_at,wall_time";
+
+    @Autowired
+    private Judge0CircuitBreaker circuitBreaker;
+
+    @Autowired
+    private Judge0Bulkhead bulkhead;
+
+    @Autowired
+    private Judge0ResultReader resultReader;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private HttpClient httpClient;
+
+    private AsyncPermits permits;
+
+    private List<Judge0Node> nodes;
+
+    // token -> 创建它的节点；拿到最终结果或放弃轮询后通过 release 移除
+    private final Map<String, Judge0Node> tokenNodes = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterPropertiesSet() {
+        // JDK HttpClient 默认复用空闲连接；请求超时按请求单独设置
+        this.httpClient = HttpClient.newBuilder()
+                .version(httpVersion)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(executor)
+                .build();
+        this.permits = new AsyncPermits(maxConnections);
+        this.nodes = Arrays.stream(baseUrls)
+                .map(String::trim)
+                .filter(StringUtils::hasText)
+                .map(url -> url.endsWith("/") ? url.substring(0, url.length() - 1) : url)
+                .distinct()
+                .map(Judge0Node::new)
+                .toList();
+        if (nodes.isEmpty()) {
+            throw new IllegalStateException("未配置任何Judge0节点");
+        }
+        log.info("Judge0节点: {}", nodes);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public List<Judge0Node> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * 该 token 的结果已经拿到或不再需要，释放它在所属节点上的在途计数。
+     */
+    public void release(String token) {
+        Judge0Node node = tokenNodes.remove(token);
+        if (node != null) {
+            node.addOutstanding(-1);
+        }
+    }
+
+    /**
+     * 把 token 按所属节点分组，便于调用方按节点分别批量查询，一个节点故障不影响其他节点的结果。
+     * 不知道归属的 token（例如应用重启前创建的）单独成组。
+     */
+    public Collection<List<String>> groupByNode(List<String> tokens) {
+        Map<Judge0Node, List<String>> groups = new LinkedHashMap<>();
+        List<String> unpinned = new ArrayList<>();
+        for (String token : tokens) {
+            Judge0Node node = tokenNodes.get(token);
+            if (node != null) {
+                groups.computeIfAbsent(node, n -> new ArrayList<>()).add(token);
+            } else {
+                unpinned.add(token);
+            }
+        }
+        List<List<String>> result = new ArrayList<>(groups.values());
+        if (!unpinned.isEmpty()) {
+            result.add(unpinned);
+        }
+        return result;
     }
 
     public Judge0Submission submitCode(Judge0Submission submission) {
         try {
-            String url = baseUrl + "/submissions?base64_encoded=false&wait=false";
+            return submitCodeAsync(submission).join();
+        } catch (CompletionException e) {
+            log.error("调用Judge0失败: {}", rootMessage(e));
+            throw unavailable(e);
+        }
+    }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
+    public CompletableFuture<Judge0Submission> submitCodeAsync(Judge0Submission submission) {
+        return guarded(() -> onLeastLoadedNode(node -> {
+            String url = node.getBaseUrl() + "/submissions?base64_encoded=false&wait=false";
+            return send(node, post(url, submission), 201, new TypeReference<Judge0Submission>() {})
+                    .thenApply(created -> {
+                        if (created != null) {
+                            pin(created.getToken(), node);
+                        }
+                        return created;
+                    });
+        }, new HashSet<>()));
+    }
 
-            HttpEntity<Judge0Submission> request = new HttpEntity<>(submission, headers);
+    /**
+     * 通过 Judge0 的 POST /submissions/batch 一次性创建多个评测任务。
+     * 返回列表与入参一一对应：第 i 个元素为第 i 个提交的创建结果，
+     * 若 Judge0 拒绝了其中某一项（例如参数校验失败），对应元素的 token 为 null。
+     * 超过 max-batch-size 时按上限自动分片提交。
+     */
+    public List<Judge0Submission> submitBatch(List<Judge0Submission> submissions) {
+        try {
+            return submitBatchAsync(submissions).join();
+        } catch (CompletionException e) {
+            log.error("调用Judge0批量提交失败: {}", rootMessage(e));
+            throw unavailable(e);
+        }
+    }
 
-            ResponseEntity<Judge0Submission> response = restTemplate.postForEntity(
-                    url, request, Judge0Submission.class);
+    public CompletableFuture<List<Judge0Submission>> submitBatchAsync(List<Judge0Submission> submissions) {
+        return guarded(() -> submitChunksAsync(submissions));
+    }
 
-            if (response.getStatusCode() == HttpStatus.CREATED) {
-                return response.getBody();
-            } else {
-                log.error("Judge0提交失败: {}", response.getStatusCode());
-                throw new RuntimeException("评测服务暂时不可用");
+    private CompletableFuture<List<Judge0Submission>> submitChunksAsync(List<Judge0Submission> submissions) {
+        List<CompletableFuture<List<Judge0Submission>>> chunks = new ArrayList<>();
+        for (int from = 0; from < submissions.size(); from += maxBatchSize) {
+            List<Judge0Submission> chunk = submissions.subList(from, Math.min(from + maxBatchSize, submissions.size()));
+            chunks.add(submitBatchChunkAsync(chunk));
+        }
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).handle((v, error) -> {
+            if (error != null) {
+                // 调用方只会看到整体失败，不会轮询已成功分片的 token：释放它们在节点上的在途计数
+                chunks.stream()
+                        .filter(c -> !c.isCompletedExceptionally())
+                        .forEach(c -> c.join().forEach(created -> release(created.getToken())));
+                throw error instanceof CompletionException ce ? ce : new CompletionException(error);
             }
-        } catch (Exception e) {
-            log.error("调用Judge0失败: {}", e.getMessage());
-            throw new RuntimeException("评测服务暂时不可用");
+            List<Judge0Submission> created = new ArrayList<>(submissions.size());
+            chunks.forEach(c -> created.addAll(c.join()));
+            return created;
+        });
+    }
+
+    private CompletableFuture<List<Judge0Submission>> submitBatchChunkAsync(List<Judge0Submission> chunk) {
+        return onLeastLoadedNode(node -> {
+            String url = node.getBaseUrl() + "/submissions/batch?base64_encoded=false";
+            return send(node, post(url, Map.of("submissions", chunk)), 201,
+                    new TypeReference<List<Judge0Submission>>() {})
+                    .thenApply(tokens -> {
+                        if (tokens == null || tokens.size() != chunk.size()) {
+                            throw new IllegalStateException("Judge0批量提交返回的数量不一致");
+                        }
+                        tokens.forEach(created -> pin(created.getToken(), node));
+                        return tokens;
+                    });
+        }, new HashSet<>());
+    }
+
+    /**
+     * 通过 GET /submissions/batch?tokens=... 一次查询多个评测任务的结果。
+     * 返回列表与入参 token 一一对应，Judge0 中不存在的 token 对应元素为 null；
+     * 请求失败时返回 null，由调用方决定是否稍后重试。
+     * token 分属多个节点时分别查询后合并，任一节点失败即视为整批失败（调用方可先用 groupByNode 分组）。
+     */
+    public List<Judge0Result> getSubmissionResults(List<String> tokens) {
+        try {
+            return getSubmissionResultsAsync(tokens).join();
+        } catch (CompletionException e) {
+            log.error("批量获取评测结果失败: {}", rootMessage(e));
+            return null;
+        }
+    }
+
+    public CompletableFuture<List<Judge0Result>> getSubmissionResultsAsync(List<String> tokens) {
+        return guarded(() -> fetchAllResults(tokens));
+    }
+
+    private CompletableFuture<List<Judge0Result>> fetchAllResults(List<String> tokens) {
+        Map<String, Judge0Result> merged = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> groups = new ArrayList<>();
+        for (List<String> group : groupByNode(tokens)) {
+            Judge0Node node = tokenNodes.get(group.get(0));
+            CompletableFuture<Map<String, Judge0Result>> found = node != null
+                    ? fetchResults(node, group)
+                    : fetchUnpinnedResults(group);
+            groups.add(found.thenAccept(merged::putAll));
         }
+        return CompletableFuture.allOf(groups.toArray(new CompletableFuture[0]))
+                .thenApply(v -> tokens.stream().map(merged::get).toList());
+    }
+
+    private CompletableFuture<Map<String, Judge0Result>> fetchResults(Judge0Node node, List<String> tokens) {
+        String url = node.getBaseUrl() + "/submissions/batch?tokens=" + String.join(",", tokens)
+                + "&base64_encoded=false&fields=" + RESULT_FIELDS;
+        return send(node, get(url), 200, body -> resultReader.readBatch(body, false))
+                .thenApply(results -> {
+                    Map<String, Judge0Result> byToken = new LinkedHashMap<>();
+                    for (int i = 0; i < tokens.size() && i < results.size(); i++) {
+                        if (results.get(i) != null) {
+                            byToken.put(tokens.get(i), results.get(i));
+                        }
+                    }
+                    return byToken;
+                });
+    }
+
+    /**
+     * 不知道归属的 token 向所有节点查询，找到后记住其所属节点；只有全部节点都失败时才算失败。
+     */
+    private CompletableFuture<Map<String, Judge0Result>> fetchUnpinnedResults(List<String> tokens) {
+        Map<String, Judge0Result> merged = new ConcurrentHashMap<>();
+        List<CompletableFuture<Boolean>> queries = new ArrayList<>();
+        for (Judge0Node node : nodes) {
+            queries.add(fetchResults(node, tokens)
+                    .thenApply(found -> {
+                        found.forEach((token, result) -> {
+                            if (result.getStatus() != null && merged.putIfAbsent(token, result) == null) {
+                                pin(token, node);
+                            }
+                        });
+                        return true;
+                    })
+                    .exceptionally(e -> false));
+        }
+        return CompletableFuture.allOf(queries.toArray(new CompletableFuture[0])).thenApply(v -> {
+            if (queries.stream().noneMatch(CompletableFuture::join)) {
+                throw new Judge0UnavailableException("所有Judge0节点均查询失败");
+            }
+            return merged;
+        });
     }
 
     public Judge0Result getSubmissionResult(String token) {
         try {
-            String url = baseUrl + "/submissions/" + token + "?base64_encoded=false";
+            return getSubmissionResultAsync(token).join();
+        } catch (CompletionException e) {
+            log.error("获取评测结果失败: {}", rootMessage(e));
+            return null;
+        }
+    }
+
+    public CompletableFuture<Judge0Result> getSubmissionResultAsync(String token) {
+        Judge0Node node = tokenNodes.get(token);
+        if (node == null) {
+            return getSubmissionResultsAsync(List.of(token)).thenApply(results -> results.get(0));
+        }
+        String url = node.getBaseUrl() + "/submissions/" + token + "?base64_encoded=false";
+        return guarded(() -> send(node, get(url), 200, body -> resultReader.readResult(body, false)));
+    }
 
-            ResponseEntity<Judge0Result> response = restTemplate.getForEntity(
-                    url, Judge0Result.class);
+    /**
+     * 定时健康检查：摘除连续失败的节点，恢复连续成功的节点。
+     */
+    @Scheduled(fixedDelayString = "${app.judge0.health.interval-ms:5000}")
+    public void checkNodes() {
+        for (Judge0Node node : nodes) {
+            about(node).exceptionally(e -> null);
+        }
+        // 熔断未关闭时，即使没有业务流量也要发出试探请求，否则熔断器永远不会恢复
+        if (!circuitBreaker.isClosed()) {
+            guarded(() -> onLeastLoadedNode(this::about, new HashSet<>())).exceptionally(e -> null);
+        }
+    }
 
-            if (response.getStatusCode() == HttpStatus.OK) {
-                return response.getBody();
+    private CompletableFuture<Map<String, Object>> about(Judge0Node node) {
+        return send(node, get(node.getBaseUrl() + "/about"), 200, new TypeReference<Map<String, Object>>() {});
+    }
+
+    /**
+     * 经过熔断器和并发隔离执行一次调用，并把结果回报给熔断器。
+     */
+    private <T> CompletableFuture<T> guarded(Supplier<CompletableFuture<T>> call) {
+        if (!circuitBreaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(new Judge0UnavailableException("评测服务熔断中"));
+        }
+        if (!bulkhead.tryAcquire()) {
+            // 并发已满不代表评测服务故障，归还熔断许可即可
+            circuitBreaker.releasePermit();
+            return CompletableFuture.failedFuture(new Judge0UnavailableException("评测服务繁忙"));
+        }
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((value, error) -> {
+            bulkhead.release();
+            if (error != null && isNodeFailure(error)) {
+                circuitBreaker.onFailure();
             } else {
-                log.error("获取评测结果失败: {}", response.getStatusCode());
-                return null;
+                circuitBreaker.onSuccess();
+            }
+        });
+    }
+
+    private void pin(String token, Judge0Node node) {
+        if (token != null && tokenNodes.putIfAbsent(token, node) == null) {
+            node.addOutstanding(1);
+        }
+    }
+
+    /**
+     * 在在途 token 最少的健康节点上执行 call，节点故障时换下一个节点；
+     * 所有节点都被摘除时仍会逐个尝试，避免健康检查误判导致完全不可用。
+     */
+    private <T> CompletableFuture<T> onLeastLoadedNode(Function<Judge0Node, CompletableFuture<T>> call,
+                                                     Set<Judge0Node> tried) {
+        Judge0Node node = nodes.stream()
+                .filter(n -> !tried.contains(n))
+                .min(Comparator.comparing((Judge0Node n) -> !n.isHealthy())
+                        .thenComparingInt(Judge0Node::getOutstanding))
+                .orElse(null);
+        if (node == null) {
+            return CompletableFuture.failedFuture(new Judge0UnavailableException("没有可用的Judge0节点"));
+        }
+        tried.add(node);
+        return call.apply(node).exceptionallyCompose(e -> {
+            if (!isNodeFailure(e) || tried.size() >= nodes.size()) {
+                return CompletableFuture.failedFuture(e);
             }
+            log.warn("Judge0节点 {} 请求失败，改投其他节点: {}", node, rootMessage(e));
+            return onLeastLoadedNode(call, tried);
+        });
+    }
+
+    private HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(requestTimeoutMs))
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String url, Object body) {
+        try {
+            return HttpRequest.newBuilder(URI.create(url))
+                    .timeout(Duration.ofMillis(requestTimeoutMs))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
         } catch (Exception e) {
-            log.error("获取评测结果失败: {}", e.getMessage());
-            return null;
+            throw new IllegalArgumentException("序列化Judge0请求失败: " + e.getMessage(), e);
+        }
+    }
+
+    private <T> CompletableFuture<T> send(Judge0Node node, HttpRequest request, int expectedStatus,
+                                          TypeReference<T> type) {
+        return send(node, request, expectedStatus, body -> {
+            try {
+                return objectMapper.readValue(body, type);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("解析Judge0响应失败: " + e.getOriginalMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * 响应体以流的形式交给 reader 边读边解析，读完之前一直占用在途请求名额。
+     * 连接失败、读取响应体出错或 5xx 计为节点失败；响应格式错误不算。
+     */
+    private <T> CompletableFuture<T> send(Judge0Node node, HttpRequest request, int expectedStatus,
+                                          BodyReader<T> reader) {
+        return permits.run(() -> httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+                        .thenApply(response -> {
+                            try (InputStream body = response.body()) {
+                                if (response.statusCode() != expectedStatus) {
+                                    throw new Judge0HttpException(response.statusCode());
+                                }
+                                return reader.read(body);
+                            } catch (IOException e) {
+                                throw new CompletionException(e);
+                            }
+                        }))
+                .whenComplete((body, error) -> {
+                    boolean failed = error != null && isNodeFailure(error);
+                    if (failed && node.recordFailure(fallThreshold)) {
+                        log.warn("Judge0节点 {} 连续失败，已摘除", node);
+                    } else if (!failed && node.recordSuccess(riseThreshold)) {
+                        log.info("Judge0节点 {} 已恢复", node);
+                    }
+                });
+    }
+
+    @FunctionalInterface
+    private interface BodyReader<T> {
+        T read(InputStream body) throws IOException;
+    }
+
+    // 连接失败、超时或 5xx 说明节点本身有问题，换节点重试；4xx 是请求问题，换节点也没用
+    private boolean isNodeFailure(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof Judge0HttpException httpError) {
+            return httpError.statusCode >= 500;
+        }
+        if (cause instanceof Judge0UnavailableException) {
+            return true;
+        }
+        // 连接被拒、超时等都是 IOException
+        return cause instanceof IOException;
+    }
+
+    // 评测服务本身的问题抛 Judge0UnavailableException，调用方可暂存提交等待恢复；请求本身被拒绝（4xx）则不是
+    private RuntimeException unavailable(CompletionException e) {
+        return isNodeFailure(e)
+                ? new Judge0UnavailableException("评测服务暂时不可用")
+                : new RuntimeException("评测服务暂时不可用");
+    }
+
+    private String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+
+    private static class Judge0HttpException extends RuntimeException {
+        private final int statusCode;
+
+        Judge0HttpException(int statusCode) {
+            super("Judge0响应状态异常: " + statusCode);
+            this.statusCode = statusCode;
+        }
+    }
+
+    /**
+     * 非阻塞的在途请求上限：许可用完时请求进入等待队列，前一个请求结束后再发出。
+     */
+    private static class AsyncPermits {
+        private final Queue<Runnable> waiting = new ArrayDeque<>();
+        private int available;
+
+        AsyncPermits(int permits) {
+            this.available = permits;
+        }
+
+        <T> CompletableFuture<T> run(Supplier<CompletableFuture<T>> call) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            Runnable start = () -> {
+                CompletableFuture<T> future;
+                try {
+                    future = call.get();
+                } catch (Exception e) {
+                    future = CompletableFuture.failedFuture(e);
+                }
+                future.whenComplete((value, error) -> {
+                    release();
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            };
+            boolean startNow;
+            synchronized (this) {
+                startNow = available > 0;
+                if (startNow) {
+                    available--;
+                } else {
+                    waiting.add(start);
+                }
+            }
+            if (startNow) {
+                start.run();
+            }
+            return result;
+        }
+
+        private void release() {
+            Runnable next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    available++;
+                }
+            }
+            if (next != null) {
+                next.run();
+            }
         }
     }
 }
@@ -0,0 +1,188 @@
+package com.CodeExamner.judge0;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 在途 Judge0 评测任务数的自适应上限（AIMD）。
+ *
+ * 每个 Judge0 token 从创建到拿到结果算一个在途任务。分发前申请许可，结果回写、放弃轮询或取消时归还。
+ * 上限根据 Judge0 自己报告的排队时间调整：排队时间 = finished_at - created_at - wall_time，
+ * 即任务在 Judge0 队列里等待 worker 的时间。
+ * - 排队时间超过 target-queue-wait-ms：说明 Judge0 worker 已饱和，上限乘以 backoff-ratio（有冷却时间，避免一批慢结果把上限压到底）；
+ * - 否则且在途任务确实用到了上限的一半以上：上限加 1/limit，相当于每完成一个窗口的任务加 1。
+ * 这样 Judge0 加减 worker 后，上限会自动跟随。Judge0 未返回时间戳的结果只归还许可，不参与调整。
+ */
+@Slf4j
+@Component
+public class Judge0ConcurrencyLimiter implements InitializingBean {
+
+    @Value("${app.judge0.limiter.initial-limit:20}")
+    private int initialLimit;
+
+    @Value("${app.judge0.limiter.min-limit:4}")
+    private int minLimit;
+
+    @Value("${app.judge0.limiter.max-limit:256}")
+    private int maxLimit;
+
+    @Value("${app.judge0.limiter.target-queue-wait-ms:500}")
+    private long targetQueueWaitMs;
+
+    @Value("${app.judge0.limiter.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    // 两次减小上限之间的最短间隔
+    @Value("${app.judge0.limiter.decrease-cooldown-ms:1000}")
+    private long decreaseCooldownMs;
+
+    // 等待许可的最长时间，超时视为评测服务繁忙
+    @Value("${app.judge0.limiter.max-wait-ms:30000}")
+    private long maxWaitMs;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseAt;
+
+    private Timer queueWaitTimer;
+    private Timer roundTripTimer;
+
+    @Override
+    public void afterPropertiesSet() {
+        this.limit = initialLimit;
+        Gauge.builder("judge0.concurrency.limit", this, Judge0ConcurrencyLimiter::getLimit)
+                .description("当前允许的在途Judge0评测任务上限")
+                .register(meterRegistry);
+        Gauge.builder("judge0.concurrency.in_flight", this, Judge0ConcurrencyLimiter::getInFlight)
+                .description("在途的Judge0评测任务数")
+                .register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("judge0.queue_wait")
+                .description("评测任务在Judge0队列中等待worker的时间")
+                .register(meterRegistry);
+        this.roundTripTimer = Timer.builder("judge0.round_trip")
+                .description("评测任务从提交到拿到结果的时间")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 申请 permits 个在途名额，名额不足时阻塞等待（应在评测执行器的虚拟线程上调用）。
+     * 一次申请超过上限时，只要当前没有在途任务也会放行，保证大批量提交不会永远等待。
+     *
+     * @throws Judge0UnavailableException 等待超过 max-wait-ms
+     */
+    public void acquire(int permits) {
+        lock.lock();
+        try {
+            long remaining = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+            while (inFlight > 0 && inFlight + permits > (int) limit) {
+                if (remaining <= 0) {
+                    throw new Judge0UnavailableException("评测服务繁忙");
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+            inFlight += permits;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Judge0UnavailableException("评测服务繁忙");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 不等待直接占用名额，用于结果回写线程上的续发（上一批刚归还了名额，不能在回写线程上阻塞）。
+     */
+    public void acquireNow(int permits) {
+        lock.lock();
+        try {
+            inFlight += permits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 归还名额但不采样，例如任务被 Judge0 拒绝、提交失败或不再轮询。
+     */
+    public void release(int permits) {
+        lock.lock();
+        try {
+            inFlight = Math.max(0, inFlight - permits);
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 某个评测任务拿到最终结果：归还名额，并用 Judge0 报告的排队时间调整上限。
+     *
+     * @param roundTripMs 从提交到拿到结果的本地耗时
+     */
+    public void onResult(Judge0Result result, long roundTripMs) {
+        roundTripTimer.record(Duration.ofMillis(roundTripMs));
+        long queueWaitMs = queueWaitMs(result);
+        if (queueWaitMs >= 0) {
+            queueWaitTimer.record(Duration.ofMillis(queueWaitMs));
+        }
+
+        lock.lock();
+        try {
+            if (queueWaitMs > targetQueueWaitMs) {
+                long now = System.currentTimeMillis();
+                if (now - lastDecreaseAt >= decreaseCooldownMs) {
+                    lastDecreaseAt = now;
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    log.debug("Judge0排队 {}ms，在途上限降至 {}", queueWaitMs, (int) limit);
+                }
+            } else if (queueWaitMs >= 0 && inFlight >= limit / 2) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            inFlight = Math.max(0, inFlight - 1);
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    // Judge0 未返回时间戳（旧版本或字段被裁剪）时返回 -1
+    private long queueWaitMs(Judge0Result result) {
+        if (result.getCreatedAt() == null || result.getFinishedAt() == null) {
+            return -1;
+        }
+        try {
+            long totalMs = Duration.between(OffsetDateTime.parse(result.getCreatedAt()),
+                    OffsetDateTime.parse(result.getFinishedAt())).toMillis();
+            double wallSeconds = result.getWallTime() != null ? Double.parseDouble(result.getWallTime()) : 0;
+            return Math.max(0, totalMs - (long) (wallSeconds * 1000));
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+}
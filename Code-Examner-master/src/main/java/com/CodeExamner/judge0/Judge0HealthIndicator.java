@@ -0,0 +1,50 @@
+package com.CodeExamner.judge0;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 在 /actuator/health 中暴露 Judge0 熔断器、并发隔离和各节点的状态。
+ * 熔断打开时报告 DEGRADED 而不是 DOWN：评测暂停，但其他功能仍可用，不应让实例被摘除。
+ */
+@Component
+@ConditionalOnProperty(name = "app.judge.engine", havingValue = "judge0", matchIfMissing = true)
+public class Judge0HealthIndicator implements HealthIndicator {
+
+    private static final Status DEGRADED = new Status("DEGRADED", "评测服务不可用，提交暂存等待恢复");
+
+    @Autowired
+    private Judge0CircuitBreaker circuitBreaker;
+
+    @Autowired
+    private Judge0Bulkhead bulkhead;
+
+    @Autowired
+    private Judge0Client judge0Client;
+
+    @Override
+    public Health health() {
+        Judge0CircuitBreaker.State state = circuitBreaker.getState();
+        Map<String, Object> nodes = new LinkedHashMap<>();
+        for (Judge0Node node : judge0Client.getNodes()) {
+            nodes.put(node.getBaseUrl(), Map.of(
+                    "healthy", node.isHealthy(),
+                    "outstanding", node.getOutstanding()));
+        }
+        return Health.status(state == Judge0CircuitBreaker.State.CLOSED ? Status.UP : DEGRADED)
+                .withDetail("circuit", state)
+                .withDetail("circuitRejected", (long) circuitBreaker.getRejectedCount())
+                .withDetail("bulkheadAvailable", bulkhead.getAvailable())
+                .withDetail("bulkheadMax", bulkhead.getMaxConcurrentCalls())
+                .withDetail("bulkheadRejected", (long) bulkhead.getRejectedCount())
+                .withDetail("nodes", nodes)
+                .build();
+    }
+}
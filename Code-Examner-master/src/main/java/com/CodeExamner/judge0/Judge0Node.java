@@ -0,0 +1,81 @@
+package com.CodeExamner.judge0;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Judge0 节点池中的一个实例，记录在途 token 数和健康状态，由 Judge0Client 维护。
+ */
+public class Judge0Node {
+
+    private final String baseUrl;
+
+    // 已在该节点创建、尚未拿到最终结果的评测任务数，用于最少在途路由
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private volatile boolean healthy = true;
+
+    // 连续失败 / 连续成功的次数，用于摘除与恢复
+    private int consecutiveFailures;
+    private int consecutiveSuccesses;
+
+    public Judge0Node(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    void addOutstanding(int delta) {
+        outstanding.addAndGet(delta);
+    }
+
+    /**
+     * 记录一次成功的请求或健康检查；已摘除的节点连续成功 riseThreshold 次后恢复。
+     *
+     * @return 节点是否因此恢复
+     */
+    synchronized boolean recordSuccess(int riseThreshold) {
+        consecutiveFailures = 0;
+        if (healthy) {
+            return false;
+        }
+        if (++consecutiveSuccesses >= riseThreshold) {
+            healthy = true;
+            consecutiveSuccesses = 0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 记录一次失败的请求或健康检查；连续失败 fallThreshold 次后摘除。
+     *
+     * @return 节点是否因此被摘除
+     */
+    synchronized boolean recordFailure(int fallThreshold) {
+        consecutiveSuccesses = 0;
+        if (!healthy) {
+            return false;
+        }
+        if (++consecutiveFailures >= fallThreshold) {
+            healthy = false;
+            consecutiveFailures = 0;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return baseUrl;
+    }
+}
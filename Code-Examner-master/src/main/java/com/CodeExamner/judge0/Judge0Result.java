@@ -32,4 +32,20 @@ public class Judge0Result {
 
     @JsonProperty("exit_signal")
     private Integer exitSignal;
+
+    // 以下时间信息用于推算任务在 Judge0 队列中的等待时间
+    @JsonProperty("created_at")
+    private String createdAt;
+
+    @JsonProperty("finished_at")
+    private String finishedAt;
+
+    @JsonProperty("wall_time")
+    private String wallTime;
+
+    // 以下由 Judge0ResultReader 填写：输出超过上限时只保留开头部分，记录原始字节数和截断标记
+    private Long stdoutSize;
+    private Boolean stdoutTruncated;
+    private Long stderrSize;
+    private Boolean stderrTruncated;
 }
\ No newline at end of file
@@ -0,0 +1,368 @@
+package com.CodeExamner.judge0;
+
+import com.CodeExamner.judge.JudgeEngine;
+import com.CodeExamner.service.JudgeService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 集中式 Judge0 结果轮询器。
+ *
+ * 所有提交中尚未出结果的 token 都登记在这里，由一个定时任务统一通过
+ * GET /submissions/batch 批量查询，避免每个测试点占用一个线程 sleep 等待。
+ * 每个 token 独立退避：首次查询较快，之后按倍数递增直到上限；
+ * 仍处于 In Queue / Processing 的 token 会重新排队，而不是被丢弃。
+ *
+ * 配置了 app.judge0.callback-url 时，结果优先由 Judge0 回调推送（见 Judge0CallbackController），
+ * 轮询只作为兜底：首次查询推迟到 callback.grace-ms 之后，只有迟迟等不到回调的 token 才会被查询。
+ *
+ * 查询通过 JudgeEngine 进行；能主动推送结果的引擎（例如本地沙箱）直接把结果交给 acceptEngineResult。
+ *
+ * 拿到结果后的回写（比对输出、写库、分发下一批）交给独立的虚拟线程执行，同时进行的回写数由
+ * poll.max-concurrent-completions 限制：定时任务默认共用一个调度线程，回写不能占住它，
+ * 否则其他 token 的轮询和其他定时任务都要排在写库之后。
+ */
+@Slf4j
+@Component
+public class Judge0ResultPoller implements InitializingBean, DisposableBean {
+
+    @Autowired
+    private JudgeEngine judgeEngine;
+
+    @Autowired
+    private Judge0ConcurrencyLimiter concurrencyLimiter;
+
+    // 结果回写依赖 JudgeService，而 JudgeService 又依赖本类登记 token，这里延迟注入打破循环
+    @Lazy
+    @Autowired
+    private JudgeService judgeService;
+
+    // 提交后首次查询的延迟，多数简单程序在这个时间内就能出结果
+    @Value("${app.judge0.poll.initial-delay-ms:500}")
+    private long initialDelayMs;
+
+    // 退避的上限
+    @Value("${app.judge0.poll.max-delay-ms:8000}")
+    private long maxDelayMs;
+
+    @Value("${app.judge0.poll.backoff-multiplier:2.0}")
+    private double backoffMultiplier;
+
+    // Judge0 连续多少次查不到该 token 后放弃轮询（提交保持评测中，由恢复任务兜底）
+    @Value("${app.judge0.poll.max-missing:10}")
+    private int maxMissing;
+
+    // 同时进行的结果回写数，不超过数据库连接池的大小
+    @Value("${app.judge0.poll.max-concurrent-completions:8}")
+    private int maxConcurrentCompletions;
+
+    // 为空时不启用回调，完全依赖轮询
+    @Value("${app.judge0.callback-url:}")
+    private String callbackUrl;
+
+    // 启用回调时，等待回调的宽限期，超时后才开始兜底轮询
+    @Value("${app.judge0.callback.grace-ms:5000}")
+    private long callbackGraceMs;
+
+    private static final long EARLY_CALLBACK_TTL_MS = 60_000;
+
+    // 暂存的提前回调条数上限；回调接口无需登录，防止伪造的请求占满内存
+    private static final int MAX_EARLY_CALLBACKS = 10_000;
+
+    // Judge0 的 token 为 UUID，回调密钥为 prepareCallback 生成的 32 位十六进制串
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("[0-9a-fA-F]{8}(-[0-9a-fA-F]{4}){3}-[0-9a-fA-F]{12}");
+    private static final Pattern SECRET_PATTERN = Pattern.compile("[0-9a-f]{32}");
+
+    private final Map<String, PendingToken> pending = new ConcurrentHashMap<>();
+
+    // 先于 track 到达的回调（批量提交尚未返回 token 时评测就已结束），短暂保留等待登记
+    private final Map<String, EarlyCallback> earlyCallbacks = new ConcurrentHashMap<>();
+
+    // 已取得结果、正在回写的 token -> 提交ID，停机排空时也要等待它们
+    private final Map<String, Long> completing = new ConcurrentHashMap<>();
+
+    private final ExecutorService completions = Executors.newVirtualThreadPerTaskExecutor();
+
+    private Semaphore completionPermits;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Override
+    public void afterPropertiesSet() {
+        completionPermits = new Semaphore(maxConcurrentCompletions);
+        judgeEngine.setResultListener(this::acceptEngineResult);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        completions.shutdown();
+        if (!completions.awaitTermination(10, TimeUnit.SECONDS)) {
+            // 未回写的结果由租约过期后的巡检任务重新取得
+            completions.shutdownNow();
+        }
+    }
+
+    /**
+     * 若启用了回调，为该评测任务生成一次性密钥并写入 callback_url，返回密钥；未启用时返回 null。
+     */
+    public String prepareCallback(Judge0Submission submission) {
+        if (!StringUtils.hasText(callbackUrl)) {
+            return null;
+        }
+        byte[] bytes = new byte[16];
+        secureRandom.nextBytes(bytes);
+        String secret = HexFormat.of().formatHex(bytes);
+        submission.setCallbackUrl(callbackUrl + (callbackUrl.contains("?") ? "&" : "?") + "secret=" + secret);
+        return secret;
+    }
+
+    /**
+     * 登记一个待查询的 token，callbackSecret 为 prepareCallback 生成的密钥（未启用回调时为 null）。
+     * 调用方分发前已向 Judge0ConcurrencyLimiter 申请了名额，拿到结果或不再轮询时由这里归还。
+     */
+    public void track(Long submissionId, Long testCaseId, String token, String callbackSecret) {
+        long firstPollDelay = callbackSecret != null ? callbackGraceMs : initialDelayMs;
+        pending.put(token, new PendingToken(submissionId, testCaseId, callbackSecret,
+                System.currentTimeMillis() + firstPollDelay));
+
+        EarlyCallback early = earlyCallbacks.remove(token);
+        if (early == null) {
+            return;
+        }
+        if (early.fromEngine) {
+            acceptEngineResult(token, early.result);
+        } else {
+            acceptCallback(token, early.secret, early.result);
+        }
+    }
+
+    /**
+     * 处理评测引擎在进程内直接推送的结果，不需要密钥校验。
+     */
+    public void acceptEngineResult(String token, Judge0Result result) {
+        if (!pending.containsKey(token)) {
+            stashEarly(token, new EarlyCallback(null, result, System.currentTimeMillis(), true));
+            return;
+        }
+        if (result.getStatus() != null && result.getStatus().isFinished()) {
+            complete(token, result);
+        }
+    }
+
+    /**
+     * 处理 Judge0 推送的回调结果。密钥不匹配的回调直接拒绝；
+     * 同一个 token 只会被回写一次，重复回调或轮询已先拿到结果时返回 true 但不做任何事。
+     *
+     * @return 密钥校验是否通过
+     */
+    public boolean acceptCallback(String token, String secret, Judge0Result result) {
+        PendingToken p = pending.get(token);
+        if (p == null) {
+            // 还未登记（或已处理完毕），暂存等待 track；过期的暂存会在轮询时清理。
+            // 明显不是本系统签发的 token / 密钥直接丢弃，同一 token 以最后一次回调为准（密钥在 track 时才校验）
+            if (token != null && secret != null
+                    && TOKEN_PATTERN.matcher(token).matches() && SECRET_PATTERN.matcher(secret).matches()) {
+                stashEarly(token, new EarlyCallback(secret, result, System.currentTimeMillis(), false));
+            }
+            return true;
+        }
+        if (p.callbackSecret == null || secret == null
+                || !MessageDigest.isEqual(p.callbackSecret.getBytes(StandardCharsets.UTF_8),
+                secret.getBytes(StandardCharsets.UTF_8))) {
+            log.warn("Judge0回调密钥校验失败: token={}", token);
+            return false;
+        }
+        if (result.getStatus() == null || !result.getStatus().isFinished()) {
+            return true;
+        }
+        complete(token, result);
+        return true;
+    }
+
+    // 暂存条数达到上限时先清理过期的暂存，仍然满则丢弃新的 token（结果由兜底轮询取得），已有的 token 直接覆盖
+    private void stashEarly(String token, EarlyCallback early) {
+        if (earlyCallbacks.size() >= MAX_EARLY_CALLBACKS && !earlyCallbacks.containsKey(token)) {
+            long now = System.currentTimeMillis();
+            earlyCallbacks.values().removeIf(e -> now - e.receivedAt > EARLY_CALLBACK_TTL_MS);
+            if (earlyCallbacks.size() >= MAX_EARLY_CALLBACKS) {
+                log.warn("提前到达的回调过多，丢弃 token={} 的回调", token);
+                return;
+            }
+        }
+        earlyCallbacks.put(token, early);
+    }
+
+    /**
+     * 停止轮询某个提交的全部评测任务（例如快速失败后剩余测试点已不需要结果），并尽力取消它们。
+     * Judge0 不支持中止排队中的任务，这时只是不再查询和回写它们的结果。
+     */
+    public void untrackSubmission(Long submissionId) {
+        pending.entrySet().removeIf(e -> {
+            if (!e.getValue().submissionId.equals(submissionId)) {
+                return false;
+            }
+            judgeEngine.cancel(e.getKey());
+            concurrencyLimiter.release(1);
+            return true;
+        });
+    }
+
+    public int getPendingCount() {
+        return pending.size() + completing.size();
+    }
+
+    // 仍有评测任务在等待结果或回写的提交
+    public Set<Long> getPendingSubmissionIds() {
+        Set<Long> ids = pending.values().stream().map(p -> p.submissionId).collect(Collectors.toSet());
+        ids.addAll(completing.values());
+        return ids;
+    }
+
+    @Scheduled(fixedDelayString = "${app.judge0.poll.interval-ms:200}")
+    public void pollDueTokens() {
+        long now = System.currentTimeMillis();
+        earlyCallbacks.values().removeIf(e -> now - e.receivedAt > EARLY_CALLBACK_TTL_MS);
+
+        List<String> due = new ArrayList<>();
+        pending.forEach((token, p) -> {
+            if (p.nextPollAt <= now) {
+                due.add(token);
+            }
+        });
+        if (due.isEmpty()) {
+            return;
+        }
+
+        // 按引擎给出的分组（例如所属节点）分批查询，某个节点不可达时只影响它自己的 token
+        int batchSize = judgeEngine.getMaxBatchSize();
+        for (List<String> group : judgeEngine.partition(due)) {
+            for (int from = 0; from < group.size(); from += batchSize) {
+                pollBatch(group.subList(from, Math.min(from + batchSize, group.size())));
+            }
+        }
+    }
+
+    private void pollBatch(List<String> tokens) {
+        List<Judge0Result> results = judgeEngine.poll(tokens);
+        if (results == null) {
+            // 整批请求失败（例如 Judge0 暂时不可达），全部按退避稍后重试
+            tokens.forEach(this::reschedule);
+            return;
+        }
+
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            Judge0Result result = i < results.size() ? results.get(i) : null;
+
+            if (result == null || result.getStatus() == null) {
+                handleMissing(token);
+            } else if (!result.getStatus().isFinished()) {
+                reschedule(token);
+            } else {
+                complete(token, result);
+            }
+        }
+    }
+
+    private void complete(String token, Judge0Result result) {
+        PendingToken p = pending.remove(token);
+        if (p == null) {
+            return;
+        }
+        judgeEngine.release(token);
+        concurrencyLimiter.onResult(result, System.currentTimeMillis() - p.trackedAt);
+        completing.put(token, p.submissionId);
+        try {
+            completions.execute(() -> apply(token, p, result));
+        } catch (RejectedExecutionException e) {
+            // 正在停机，结果由租约过期后的巡检任务重新取得
+            completing.remove(token);
+        }
+    }
+
+    private void apply(String token, PendingToken p, Judge0Result result) {
+        try {
+            completionPermits.acquire();
+            try {
+                judgeService.applyJudge0Result(p.submissionId, p.testCaseId, result);
+            } finally {
+                completionPermits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("回写评测结果失败: submissionId={}, token={}, {}", p.submissionId, token, e.getMessage());
+        } finally {
+            completing.remove(token);
+        }
+    }
+
+    private void reschedule(String token) {
+        pending.computeIfPresent(token, (t, p) -> {
+            p.attempts++;
+            long delay = (long) Math.min(maxDelayMs, initialDelayMs * Math.pow(backoffMultiplier, p.attempts));
+            p.nextPollAt = System.currentTimeMillis() + delay;
+            return p;
+        });
+    }
+
+    private void handleMissing(String token) {
+        PendingToken p = pending.get(token);
+        if (p == null) {
+            return;
+        }
+        if (++p.missing >= maxMissing) {
+            pending.remove(token);
+            judgeEngine.release(token);
+            concurrencyLimiter.release(1);
+            log.warn("Judge0中找不到评测任务，停止轮询: submissionId={}, token={}", p.submissionId, token);
+            return;
+        }
+        reschedule(token);
+    }
+
+    private static class PendingToken {
+        private final Long submissionId;
+        private final Long testCaseId;
+        private final String callbackSecret;
+        private final long trackedAt = System.currentTimeMillis();
+        private volatile long nextPollAt;
+        private int attempts;
+        private int missing;
+
+        PendingToken(Long submissionId, Long testCaseId, String callbackSecret, long nextPollAt) {
+            this.submissionId = submissionId;
+            this.testCaseId = testCaseId;
+            this.callbackSecret = callbackSecret;
+            this.nextPollAt = nextPollAt;
+        }
+    }
+
+    // fromEngine 为 true 表示由评测引擎在进程内推送，无需校验密钥
+    private record EarlyCallback(String secret, Judge0Result result, long receivedAt, boolean fromEngine) {
+    }
+}
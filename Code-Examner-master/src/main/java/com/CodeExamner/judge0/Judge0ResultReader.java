@@ -0,0 +1,449 @@
+package com.CodeExamner.judge0;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 流式解析 Judge0 返回的评测结果（批量查询、单个查询和回调），边读边解析，不把整个响应体读入内存。
+ *
+ * stdout 最多保留 max-stdout-bytes 字节，stderr / compile_output / message 最多保留 max-stderr-bytes 字节，
+ * 超出部分只计数不保存，并在 Judge0Result 上记录截断标记和实际大小。
+ * 学生程序输出几十 MB 时，应用节点上每个结果占用的内存仍以上限为界。
+ */
+@Component
+public class Judge0ResultReader {
+
+    // token、时间戳等短字段的长度上限
+    private static final int MAX_SCALAR_CHARS = 256;
+
+    @Value("${app.judge0.result.max-stdout-bytes:4194304}")
+    private int maxStdoutBytes;
+
+    @Value("${app.judge0.result.max-stderr-bytes:65536}")
+    private int maxStderrBytes;
+
+    /**
+     * 解析 GET /submissions/batch 的响应 {"submissions": [...]}，元素顺序与请求的 token 一致，不存在的 token 为 null。
+     */
+    public List<Judge0Result> readBatch(InputStream body, boolean base64) throws IOException {
+        Parser parser = new Parser(new InputStreamReader(body, StandardCharsets.UTF_8));
+        List<Judge0Result> results = null;
+        parser.expect('{');
+        if (!parser.consumeIf('}')) {
+            do {
+                String key = parser.readKey();
+                if ("submissions".equals(key) && parser.peek() == '[') {
+                    results = new ArrayList<>();
+                    parser.expect('[');
+                    if (!parser.consumeIf(']')) {
+                        do {
+                            results.add(parser.consumeLiteralIf("null") ? null : readResult(parser, base64));
+                        } while (parser.consumeIf(','));
+                        parser.expect(']');
+                    }
+                } else {
+                    parser.skipValue();
+                }
+            } while (parser.consumeIf(','));
+            parser.expect('}');
+        }
+        if (results == null) {
+            throw new IllegalStateException("Judge0批量查询响应缺少submissions字段");
+        }
+        return results;
+    }
+
+    /**
+     * 解析单个评测结果（GET /submissions/{token} 或回调请求体）。
+     *
+     * @param base64 文本字段是否为 base64 编码（回调固定为 base64）
+     */
+    public Judge0Result readResult(InputStream body, boolean base64) throws IOException {
+        return readResult(new Parser(new InputStreamReader(body, StandardCharsets.UTF_8)), base64);
+    }
+
+    private Judge0Result readResult(Parser parser, boolean base64) throws IOException {
+        Judge0Result result = new Judge0Result();
+        parser.expect('{');
+        if (parser.consumeIf('}')) {
+            return result;
+        }
+        do {
+            String key = parser.readKey();
+            switch (key) {
+                case "token" -> result.setToken(parser.readScalar());
+                case "status" -> result.setStatus(readStatus(parser));
+                case "stdout" -> {
+                    Text text = parser.readText(maxStdoutBytes, base64);
+                    if (text != null) {
+                        result.setStdout(text.value);
+                        result.setStdoutSize(text.size);
+                        result.setStdoutTruncated(text.truncated);
+                    }
+                }
+                case "stderr" -> {
+                    Text text = parser.readText(maxStderrBytes, base64);
+                    if (text != null) {
+                        result.setStderr(text.value);
+                        result.setStderrSize(text.size);
+                        result.setStderrTruncated(text.truncated);
+                    }
+                }
+                case "compile_output" -> result.setCompileOutput(Text.valueOf(parser.readText(maxStderrBytes, base64)));
+                case "message" -> result.setMessage(Text.valueOf(parser.readText(maxStderrBytes, base64)));
+                case "time" -> result.setTime(parser.readScalar());
+                case "memory" -> result.setMemory(toDouble(parser.readScalar()));
+                case "exit_code" -> result.setExitCode(toInteger(parser.readScalar()));
+                case "exit_signal" -> result.setExitSignal(toInteger(parser.readScalar()));
+                case "created_at" -> result.setCreatedAt(parser.readScalar());
+                case "finished_at" -> result.setFinishedAt(parser.readScalar());
+                case "wall_time" -> result.setWallTime(parser.readScalar());
+                default -> parser.skipValue();
+            }
+        } while (parser.consumeIf(','));
+        parser.expect('}');
+        return result;
+    }
+
+    private Judge0Status readStatus(Parser parser) throws IOException {
+        if (parser.consumeLiteralIf("null")) {
+            return null;
+        }
+        Judge0Status status = new Judge0Status();
+        parser.expect('{');
+        if (parser.consumeIf('}')) {
+            return status;
+        }
+        do {
+            String key = parser.readKey();
+            switch (key) {
+                case "id" -> status.setId(toInteger(parser.readScalar()));
+                case "description" -> status.setDescription(parser.readScalar());
+                default -> parser.skipValue();
+            }
+        } while (parser.consumeIf(','));
+        parser.expect('}');
+        return status;
+    }
+
+    private static Integer toInteger(String value) {
+        try {
+            return value != null ? (int) Double.parseDouble(value) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Double toDouble(String value) {
+        try {
+            return value != null ? Double.parseDouble(value) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 截断后的文本字段：value 为保留的部分，size 为原始内容的字节数。
+     */
+    private record Text(String value, long size, boolean truncated) {
+
+        static String valueOf(Text text) {
+            return text != null ? text.value : null;
+        }
+    }
+
+    /**
+     * 只支持 Judge0 响应所需的 JSON 子集（对象、数组、字符串、数字、true / false / null），按字符流式读取。
+     */
+    private static class Parser {
+
+        private final Reader in;
+        private final char[] buffer = new char[8192];
+        private int pos;
+        private int len;
+
+        Parser(Reader in) {
+            this.in = in;
+        }
+
+        private int next() throws IOException {
+            int c = peekRaw();
+            if (c != -1) {
+                pos++;
+            }
+            return c;
+        }
+
+        private int nextChar() throws IOException {
+            int c = next();
+            if (c == -1) {
+                throw new IllegalStateException("Judge0响应不完整");
+            }
+            return c;
+        }
+
+        // 跳过空白后查看下一个字符，不消费
+        int peek() throws IOException {
+            int c = peekRaw();
+            while (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                pos++;
+                c = peekRaw();
+            }
+            return c;
+        }
+
+        void expect(char expected) throws IOException {
+            int c = peek();
+            if (c != expected) {
+                throw new IllegalStateException("解析Judge0响应失败: 期望 '" + expected + "'，实际 "
+                        + (c == -1 ? "结束" : "'" + (char) c + "'"));
+            }
+            pos++;
+        }
+
+        boolean consumeIf(char expected) throws IOException {
+            if (peek() == expected) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        boolean consumeLiteralIf(String literal) throws IOException {
+            if (peek() != literal.charAt(0)) {
+                return false;
+            }
+            for (int i = 0; i < literal.length(); i++) {
+                if (nextChar() != literal.charAt(i)) {
+                    throw new IllegalStateException("解析Judge0响应失败: 非法的字面量");
+                }
+            }
+            return true;
+        }
+
+        String readKey() throws IOException {
+            String key = readScalar();
+            expect(':');
+            return key != null ? key : "";
+        }
+
+        /**
+         * 读取字符串、数字或布尔值，统一返回文本；null 返回 null，对象和数组跳过后返回 null。
+         */
+        String readScalar() throws IOException {
+            int c = peek();
+            if (c == '"') {
+                Text text = readText(MAX_SCALAR_CHARS, false);
+                return text.value;
+            }
+            if (c == '{' || c == '[') {
+                skipValue();
+                return null;
+            }
+            if (consumeLiteralIf("null")) {
+                return null;
+            }
+            StringBuilder literal = new StringBuilder();
+            while (peekRaw() != -1) {
+                char ch = buffer[pos];
+                if (ch == ',' || ch == '}' || ch == ']' || ch == ' ' || ch == '\t' || ch == '\r' || ch == '\n') {
+                    break;
+                }
+                if (literal.length() < MAX_SCALAR_CHARS) {
+                    literal.append(ch);
+                }
+                pos++;
+            }
+            if (literal.isEmpty()) {
+                throw new IllegalStateException("解析Judge0响应失败: 缺少值");
+            }
+            return literal.toString();
+        }
+
+        // 不跳过空白，仅保证缓冲区里有下一个字符
+        private int peekRaw() throws IOException {
+            if (pos == len) {
+                len = in.read(buffer, 0, buffer.length);
+                pos = 0;
+                if (len <= 0) {
+                    len = 0;
+                    return -1;
+                }
+            }
+            return buffer[pos];
+        }
+
+        /**
+         * 读取一个字符串值，最多保留 maxBytes 字节（按 UTF-8 计算）；值为 null 时返回 null。
+         * base64 为 true 时边读边解码，保留和计数的都是解码后的字节。
+         */
+        Text readText(int maxBytes, boolean base64) throws IOException {
+            if (consumeLiteralIf("null")) {
+                return null;
+            }
+            expect('"');
+            TextSink sink = base64 ? new Base64Sink(maxBytes) : new Utf8Sink(maxBytes);
+            while (true) {
+                int c = nextChar();
+                if (c == '"') {
+                    return sink.finish();
+                }
+                if (c == '\\') {
+                    c = nextChar();
+                    switch (c) {
+                        case 'n' -> c = '\n';
+                        case 'r' -> c = '\r';
+                        case 't' -> c = '\t';
+                        case 'b' -> c = '\b';
+                        case 'f' -> c = '\f';
+                        case 'u' -> {
+                            int code = 0;
+                            for (int i = 0; i < 4; i++) {
+                                code = code * 16 + Character.digit(nextChar(), 16);
+                            }
+                            c = code;
+                        }
+                        default -> {
+                            // \" \\ \/ 原样保留被转义的字符
+                        }
+                    }
+                }
+                sink.accept((char) c);
+            }
+        }
+
+        void skipValue() throws IOException {
+            int c = peek();
+            if (c == '"') {
+                readText(0, false);
+            } else if (c == '{' || c == '[') {
+                char close = c == '{' ? '}' : ']';
+                pos++;
+                if (consumeIf(close)) {
+                    return;
+                }
+                do {
+                    if (close == '}') {
+                        readKey();
+                    }
+                    skipValue();
+                } while (consumeIf(','));
+                expect(close);
+            } else {
+                readScalar();
+            }
+        }
+    }
+
+    private interface TextSink {
+        void accept(char c);
+
+        Text finish();
+    }
+
+    /**
+     * 普通文本：按 UTF-8 字节数计数，保留前 maxBytes 字节以内的完整字符。
+     */
+    private static class Utf8Sink implements TextSink {
+        private final int maxBytes;
+        private final StringBuilder kept = new StringBuilder();
+        private long size;
+        private long keptBytes;
+        private boolean full;
+
+        Utf8Sink(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void accept(char c) {
+            // 代理对的两个字符各计 2 字节，合计与 UTF-8 的 4 字节一致
+            int bytes = c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+            size += bytes;
+            if (full) {
+                return;
+            }
+            // 代理对要么整体保留，要么整体丢弃
+            int needed = Character.isHighSurrogate(c) ? 4 : bytes;
+            if (keptBytes + needed <= maxBytes) {
+                kept.append(c);
+                keptBytes += bytes;
+            } else {
+                full = true;
+            }
+        }
+
+        @Override
+        public Text finish() {
+            return new Text(kept.toString(), size, size > keptBytes);
+        }
+    }
+
+    /**
+     * base64 文本（Judge0 回调）：按 4 个字符一组增量解码，忽略换行；内容不是合法 base64 时按原文保留。
+     */
+    private static class Base64Sink implements TextSink {
+        private final int maxBytes;
+        private final ByteArrayOutputStream kept = new ByteArrayOutputStream();
+        private final StringBuilder raw = new StringBuilder();
+        private final char[] quad = new char[4];
+        private int quadLen;
+        private long size;
+        private long rawSize;
+        private boolean invalid;
+
+        Base64Sink(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void accept(char c) {
+            rawSize++;
+            if (raw.length() < maxBytes) {
+                raw.append(c);
+            }
+            if (invalid || c == '\n' || c == '\r') {
+                return;
+            }
+            quad[quadLen++] = c;
+            if (quadLen == 4) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            try {
+                byte[] bytes = Base64.getDecoder().decode(new String(quad, 0, quadLen));
+                size += bytes.length;
+                int room = maxBytes - kept.size();
+                if (room > 0) {
+                    kept.write(bytes, 0, Math.min(room, bytes.length));
+                }
+            } catch (IllegalArgumentException e) {
+                invalid = true;
+            }
+            quadLen = 0;
+        }
+
+        @Override
+        public Text finish() {
+            if (quadLen > 0 && !invalid) {
+                flush();
+            }
+            if (invalid) {
+                return new Text(raw.toString(), rawSize, rawSize > raw.length());
+            }
+            return new Text(kept.toString(StandardCharsets.UTF_8), size, size > kept.size());
+        }
+    }
+}
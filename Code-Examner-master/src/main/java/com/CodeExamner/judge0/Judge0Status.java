@@ -1,6 +1,7 @@
 // judge0/Judge0Status.java
 package com.CodeExamner.judge0;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 
@@ -10,4 +11,12 @@ public class Judge0Status {
 
     @JsonProperty("description")
     private String description;
-}
\ No newline at end of file
+
+    /**
+     * 1: In Queue, 2: Processing 之外的状态都视为评测已结束。
+     */
+    @JsonIgnore
+    public boolean isFinished() {
+        return id != null && id != 1 && id != 2;
+    }
+}
@@ -24,6 +24,17 @@ public class Judge0Submission {
     @JsonProperty("memory_limit")
     private Integer memoryLimit;
 
+    @JsonProperty("wall_time_limit")
+    private Double wallTimeLimit;
+
+    // Multi-file program 使用的附加文件（base64 编码的 zip 包）
+    @JsonProperty("additional_files")
+    private String additionalFiles;
+
+    // 评测结束后 Judge0 以 PUT 方式回调的地址
+    @JsonProperty("callback_url")
+    private String callbackUrl;
+
     // Judge0 token (响应字段)
     private String token;
 
@@ -0,0 +1,12 @@
+package com.CodeExamner.judge0;
+
+/**
+ * Judge0 暂时无法受理请求：熔断器打开、并发隔离已满或没有可用节点。
+ * 调用方应把提交暂存为等待状态，而不是判为评测失败。
+ */
+public class Judge0UnavailableException extends RuntimeException {
+
+    public Judge0UnavailableException(String message) {
+        super(message);
+    }
+}
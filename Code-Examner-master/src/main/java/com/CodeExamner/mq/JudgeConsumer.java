@@ -1,12 +1,17 @@
 // mq/JudgeConsumer.java
 package com.CodeExamner.mq;
 
+import com.CodeExamner.entity.Submission;
+import com.CodeExamner.entity.enums.JudgeStatus;
+import com.CodeExamner.repository.SubmissionRepository;
 import com.CodeExamner.service.JudgeService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Slf4j
 @Component
 public class JudgeConsumer {
@@ -14,15 +19,32 @@ public class JudgeConsumer {
     @Autowired
     private JudgeService judgeService;
 
-    @RabbitListener(queues = "judge.queue")
+    @Autowired
+    private SubmissionRepository submissionRepository;
+
+    /**
+     * 在消费线程中同步完成评测分发后才确认消息，节点重启时未处理完的请求会重新投递给其他消费者。
+     * 抛出的异常由 judgeListenerContainerFactory 按退避策略重试，重试耗尽后进入死信队列。
+     * 未启用消息队列（app.judge.mq.enabled=false）时不启动监听。
+     */
+    @RabbitListener(queues = RabbitMQConfig.JUDGE_QUEUE, containerFactory = "judgeListenerContainerFactory",
+            autoStartup = "${app.judge.mq.enabled:false}")
     public void receiveJudgeRequest(JudgeRequest request) {
-        try {
-            log.info("接收到评测请求: submissionId={}", request.getSubmissionId());
-            // 这里需要根据request创建Submission对象并调用评测服务
-            // 简化处理，实际需要从数据库查询submission
-        } catch (Exception e) {
-            log.error("处理评测请求失败: {}", e.getMessage());
+        log.info("接收到评测请求: submissionId={}", request.getSubmissionId());
+        List<Submission> found = submissionRepository.findWithDetailsByIdIn(List.of(request.getSubmissionId()));
+        if (found.isEmpty()) {
+            log.warn("评测请求对应的提交不存在，丢弃: submissionId={}", request.getSubmissionId());
+            return;
+        }
+        Submission submission = found.get(0);
+        // 消息可能重复投递（例如确认前连接断开，或排队超过租约时长后被巡检任务重新发送），只评测仍在等待的提交；
+        // 这里只是提前跳过，真正的去重由开始评测时的原子状态转换保证
+        if (submission.getStatus() != JudgeStatus.PENDING && submission.getStatus() != JudgeStatus.WAITING) {
+            log.info("提交已在评测或已完成，跳过重复的评测请求: submissionId={}, status={}",
+                    submission.getId(), submission.getStatus());
+            return;
         }
+        judgeService.judgeSubmissionNow(submission);
     }
 
     @RabbitListener(queues = "result.queue")
@@ -34,4 +56,4 @@ public class JudgeConsumer {
             log.error("处理评测结果失败: {}", e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
@@ -2,10 +2,17 @@
 package com.CodeExamner.mq;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 @Slf4j
 @Component
 public class JudgeProducer {
@@ -13,14 +20,52 @@ public class JudgeProducer {
     @Autowired
     private RabbitTemplate rabbitTemplate;
 
+    // 等待 broker 确认评测请求的最长时间（需开启 spring.rabbitmq.publisher-confirm-type: correlated）
+    @Value("${app.judge.mq.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+
+    /**
+     * 发送评测请求，并等待 broker 确认消息已持久化且路由到队列；未确认、被拒绝或无法路由时抛出异常，
+     * 由调用方退回本节点评测，不会让提交停留在待评测状态直到租约过期。
+     */
     public void sendJudgeRequest(JudgeRequest request) {
+        CorrelationData correlation = new CorrelationData(String.valueOf(request.getSubmissionId()));
         try {
-            rabbitTemplate.convertAndSend("judge.exchange", "judge.routing.key", request);
-            log.info("发送评测请求: submissionId={}", request.getSubmissionId());
+            rabbitTemplate.convertAndSend(RabbitMQConfig.JUDGE_EXCHANGE, RabbitMQConfig.JUDGE_ROUTING_KEY, request, message -> {
+                // 持久化消息，broker 重启后评测请求不丢失
+                message.getMessageProperties().setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+                if (request.getPriority() != null) {
+                    message.getMessageProperties().setPriority(request.getPriority());
+                }
+                return message;
+            }, correlation);
         } catch (Exception e) {
             log.error("发送评测请求失败: {}", e.getMessage());
             throw new RuntimeException("消息队列服务暂时不可用");
         }
+        if (rabbitTemplate.getConnectionFactory().isPublisherConfirms()) {
+            awaitConfirm(correlation);
+        }
+        log.info("发送评测请求: submissionId={}", request.getSubmissionId());
+    }
+
+    private void awaitConfirm(CorrelationData correlation) {
+        CorrelationData.Confirm confirm;
+        try {
+            confirm = correlation.getFuture().get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待消息队列确认时被中断");
+        } catch (ExecutionException | TimeoutException e) {
+            log.error("评测请求未得到消息队列确认: submissionId={}", correlation.getId());
+            throw new RuntimeException("消息队列未确认评测请求");
+        }
+        if (!confirm.isAck() || correlation.getReturned() != null) {
+            String reason = correlation.getReturned() != null
+                    ? correlation.getReturned().getReplyText() : confirm.getReason();
+            log.error("消息队列拒绝了评测请求: submissionId={}, {}", correlation.getId(), reason);
+            throw new RuntimeException("消息队列拒绝了评测请求");
+        }
     }
 
     public void sendJudgeResult(JudgeResult result) {
@@ -9,4 +9,6 @@ public class JudgeRequest {
     private String code;
     private Long problemId;
     private String language;
+    // 消息优先级，进行中考试的提交优先评测
+    private Integer priority;
 }
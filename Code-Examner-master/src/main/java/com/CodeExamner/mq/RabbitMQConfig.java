@@ -2,19 +2,61 @@
 package com.CodeExamner.mq;
 
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.retry.RejectAndDontRequeueRecoverer;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class RabbitMQConfig {
 
-    // 评测请求队列
+    public static final String JUDGE_QUEUE = "judge.queue";
+    public static final String JUDGE_EXCHANGE = "judge.exchange";
+    public static final String JUDGE_ROUTING_KEY = "judge.routing.key";
+
+    // 重试耗尽的评测请求进入死信队列，保留原消息便于排查和手动重放
+    public static final String JUDGE_DEAD_LETTER_EXCHANGE = "judge.dlx";
+    public static final String JUDGE_DEAD_LETTER_QUEUE = "judge.dlq";
+    public static final String JUDGE_DEAD_LETTER_ROUTING_KEY = "judge.dead";
+
+    // 评测请求的最高优先级：进行中考试的提交为 1，其余为 0
+    public static final int JUDGE_MAX_PRIORITY = 1;
+
+    // 每个消费者预取的消息数；评测在消费线程中同步分发，预取过多会让消息积压在单个节点上
+    @Value("${app.judge.mq.prefetch:1}")
+    private int prefetch;
+
+    @Value("${app.judge.mq.concurrency:4}")
+    private int concurrency;
+
+    @Value("${app.judge.mq.max-concurrency:16}")
+    private int maxConcurrency;
+
+    @Value("${app.judge.mq.retry.max-attempts:3}")
+    private int retryMaxAttempts;
+
+    @Value("${app.judge.mq.retry.initial-interval-ms:1000}")
+    private long retryInitialIntervalMs;
+
+    @Value("${app.judge.mq.retry.multiplier:2.0}")
+    private double retryMultiplier;
+
+    @Value("${app.judge.mq.retry.max-interval-ms:10000}")
+    private long retryMaxIntervalMs;
+
+    // 评测请求队列：拒绝的消息转入死信交换机；带参数声明，已存在的同名旧队列需先删除
     @Bean
     public Queue judgeQueue() {
-        return new Queue("judge.queue", true);
+        return QueueBuilder.durable(JUDGE_QUEUE)
+                .deadLetterExchange(JUDGE_DEAD_LETTER_EXCHANGE)
+                .deadLetterRoutingKey(JUDGE_DEAD_LETTER_ROUTING_KEY)
+                .maxPriority(JUDGE_MAX_PRIORITY)
+                .build();
     }
 
     // 评测结果队列
@@ -23,10 +65,16 @@ public class RabbitMQConfig {
         return new Queue("result.queue", true);
     }
 
+    // 评测死信队列
+    @Bean
+    public Queue judgeDeadLetterQueue() {
+        return new Queue(JUDGE_DEAD_LETTER_QUEUE, true);
+    }
+
     // 评测交换机
     @Bean
     public DirectExchange judgeExchange() {
-        return new DirectExchange("judge.exchange");
+        return new DirectExchange(JUDGE_EXCHANGE);
     }
 
     // 结果交换机
@@ -35,10 +83,16 @@ public class RabbitMQConfig {
         return new DirectExchange("result.exchange");
     }
 
+    // 死信交换机
+    @Bean
+    public DirectExchange judgeDeadLetterExchange() {
+        return new DirectExchange(JUDGE_DEAD_LETTER_EXCHANGE);
+    }
+
     // 绑定
     @Bean
     public Binding judgeBinding(Queue judgeQueue, DirectExchange judgeExchange) {
-        return BindingBuilder.bind(judgeQueue).to(judgeExchange).with("judge.routing.key");
+        return BindingBuilder.bind(judgeQueue).to(judgeExchange).with(JUDGE_ROUTING_KEY);
     }
 
     @Bean
@@ -46,6 +100,11 @@ public class RabbitMQConfig {
         return BindingBuilder.bind(resultQueue).to(resultExchange).with("result.routing.key");
     }
 
+    @Bean
+    public Binding judgeDeadLetterBinding(Queue judgeDeadLetterQueue, DirectExchange judgeDeadLetterExchange) {
+        return BindingBuilder.bind(judgeDeadLetterQueue).to(judgeDeadLetterExchange).with(JUDGE_DEAD_LETTER_ROUTING_KEY);
+    }
+
     // JSON消息转换器
     @Bean
     public Jackson2JsonMessageConverter jsonMessageConverter() {
@@ -56,6 +115,29 @@ public class RabbitMQConfig {
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
         rabbitTemplate.setMessageConverter(jsonMessageConverter());
+        // 无法路由到队列的消息退回给发送方，配合发布确认判断评测请求是否真正入队
+        rabbitTemplate.setMandatory(true);
         return rabbitTemplate;
     }
-}
\ No newline at end of file
+
+    /**
+     * 评测请求消费者：预取数和并发消费者数可配置，处理失败时在本地按指数退避重试，
+     * 重试耗尽后拒绝且不重新入队，由 RabbitMQ 转入死信队列。
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory judgeListenerContainerFactory(ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(jsonMessageConverter());
+        factory.setPrefetchCount(prefetch);
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(Math.max(concurrency, maxConcurrency));
+        factory.setDefaultRequeueRejected(false);
+        factory.setAdviceChain(RetryInterceptorBuilder.stateless()
+                .maxAttempts(retryMaxAttempts)
+                .backOffOptions(retryInitialIntervalMs, retryMultiplier, retryMaxIntervalMs)
+                .recoverer(new RejectAndDontRequeueRecoverer())
+                .build());
+        return factory;
+    }
+}
@@ -0,0 +1,41 @@
+package com.CodeExamner.repository;
+
+import com.CodeExamner.entity.SubmissionDetail;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SubmissionDetailRepository extends JpaRepository<SubmissionDetail, Long> {
+
+    List<SubmissionDetail> findBySubmissionId(Long submissionId);
+
+    // 本节点分发（或未记录节点）、仍在评测中且记录了评测任务 token 的提交，启动时据此恢复结果收集和轮询
+    @Query("""
+           SELECT DISTINCT d.submission.id FROM SubmissionDetail d
+           WHERE d.status = 'JUDGING' AND d.judgeToken IS NOT NULL
+             AND (d.judgeNode = :node OR d.judgeNode IS NULL)
+           """)
+    List<Long> findSubmissionIdsWithJudgingTokens(@Param("node") String node);
+
+    // 重新评测前清除上一次的测试点结果
+    @Modifying
+    @Query("DELETE FROM SubmissionDetail d WHERE d.submission.id IN :submissionIds")
+    int deleteBySubmissionIdIn(@Param("submissionIds") Collection<Long> submissionIds);
+
+    // 某题目下每个测试用例的历史评测次数与失败次数：[testCaseId, total, failed]
+    @Query("""
+           SELECT d.testCase.id, COUNT(d),
+                  SUM(CASE WHEN d.status <> 'ACCEPTED' THEN 1 ELSE 0 END)
+           FROM SubmissionDetail d
+           WHERE d.testCase.problem.id = :problemId
+             AND d.status NOT IN ('PENDING', 'JUDGING', 'SKIPPED')
+           GROUP BY d.testCase.id
+           """)
+    List<Object[]> countOutcomesByProblemId(Long problemId);
+}
@@ -5,12 +5,17 @@ import com.CodeExamner.entity.Submission;
 import com.CodeExamner.entity.enums.JudgeStatus; // 需要导入JudgeStatus
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime; // 需要导入LocalDateTime
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface SubmissionRepository extends JpaRepository<Submission, Long> {
@@ -47,6 +52,94 @@ public interface SubmissionRepository extends JpaRepository<Submission, Long> {
     Long countByExamId(Long examId);
     Long countByExamIdAndStatus(Long examId, JudgeStatus status);
 
+    // 评测结果缓存：查找评测键相同且已有最终结果的最近一次提交
+    Optional<Submission> findFirstByVerdictKeyAndStatusInAndIdNotOrderByIdDesc(
+            String verdictKey, Collection<JudgeStatus> statuses, Long excludeId);
+
+    // 按状态分批取提交ID（例如熔断恢复后释放等待中的提交）
+    @Query("SELECT s.id FROM Submission s WHERE s.status = :status ORDER BY s.id")
+    List<Long> findIdsByStatus(@Param("status") JudgeStatus status, Pageable pageable);
+
+    /**
+     * 锁定一批租约已过期的待评测 / 评测中提交：[id, retryCount, adoptable, judging]。
+     * 从未取得租约的提交以提交时间加一个租约时长为准；题目没有测试用例时保持待评测，不接管。
+     * adoptable 表示仍有 dispatchedAfter 之后分发、尚未出结果的评测任务，可以接着轮询而不必重新评测；
+     * judging 表示已经开始评测，待评测的提交（排队过久、消息丢失或停机排空时让出）重新分发不算一次重试。
+     * SKIP LOCKED 跳过其他节点正在接管的行，需在事务中调用，并在同一事务内续上租约。
+     */
+    @Query(value = """
+           SELECT s.id, s.retry_count,
+                  s.status = 'JUDGING' AND EXISTS (
+                      SELECT 1 FROM submission_details d
+                      WHERE d.submission_id = s.id AND d.status = 'JUDGING'
+                        AND d.judge_token IS NOT NULL AND d.dispatched_at > :dispatchedAfter),
+                  s.status = 'JUDGING'
+           FROM submissions s
+           WHERE s.status IN ('PENDING', 'JUDGING')
+             AND (s.lease_until < :now OR (s.lease_until IS NULL AND s.submit_time < :unleasedBefore))
+             AND EXISTS (SELECT 1 FROM test_cases t WHERE t.problem_id = s.problem_id)
+           ORDER BY s.id
+           LIMIT :limit
+           FOR UPDATE OF s SKIP LOCKED
+           """, nativeQuery = true)
+    List<Object[]> lockExpiredLeases(@Param("now") LocalDateTime now,
+                                     @Param("unleasedBefore") LocalDateTime unleasedBefore,
+                                     @Param("dispatchedAfter") LocalDateTime dispatchedAfter,
+                                     @Param("limit") int limit);
+
+    // 续约（接管在途评测任务时）
+    @Modifying
+    @Query("UPDATE Submission s SET s.leaseUntil = :leaseUntil WHERE s.id IN :ids")
+    int renewLeases(@Param("ids") Collection<Long> ids, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    // 停机排空超时：让出评测中提交的租约，由其他节点立即接管在途评测任务
+    @Modifying
+    @Query("UPDATE Submission s SET s.leaseUntil = :now WHERE s.id IN :ids AND s.status = 'JUDGING'")
+    int expireLeases(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // 接管后重新评测：回到待评测状态，续上租约；retryDelta 为 1 时计一次重试
+    @Modifying
+    @Query("""
+           UPDATE Submission s
+           SET s.status = com.CodeExamner.entity.enums.JudgeStatus.PENDING, s.score = NULL, s.leaseUntil = :leaseUntil,
+               s.retryCount = COALESCE(s.retryCount, 0) + :retryDelta
+           WHERE s.id IN :ids
+           """)
+    int renewForRetry(@Param("ids") Collection<Long> ids, @Param("leaseUntil") LocalDateTime leaseUntil,
+                      @Param("retryDelta") int retryDelta);
+
+    // 开始评测：只有仍在等待的提交能转为评测中并取得租约，同一提交的重复评测请求由此去重
+    @Modifying
+    @Query("""
+           UPDATE Submission s
+           SET s.status = com.CodeExamner.entity.enums.JudgeStatus.JUDGING, s.leaseUntil = :leaseUntil
+           WHERE s.id = :id AND s.status IN (com.CodeExamner.entity.enums.JudgeStatus.PENDING,
+                                             com.CodeExamner.entity.enums.JudgeStatus.WAITING)
+           """)
+    int claimForJudging(@Param("id") Long id, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    // 重试次数用尽：放弃评测
+    @Modifying
+    @Query("""
+           UPDATE Submission s
+           SET s.status = com.CodeExamner.entity.enums.JudgeStatus.SYSTEM_ERROR, s.score = 0, s.leaseUntil = NULL
+           WHERE s.id IN :ids
+           """)
+    int markSystemError(@Param("ids") Collection<Long> ids);
+
+    // 接管后未能交给评测执行器（例如队列已满）：撤销租约和本次重试计数（retryDelta），留给下一轮
+    @Modifying
+    @Query("""
+           UPDATE Submission s
+           SET s.leaseUntil = NULL, s.retryCount = s.retryCount - :retryDelta
+           WHERE s.id IN :ids AND s.status = 'PENDING'
+           """)
+    int releaseLeases(@Param("ids") Collection<Long> ids, @Param("retryDelta") int retryDelta);
+
+    // 连同提交详情一起加载，供脱离请求上下文的评测线程使用
+    @EntityGraph(attributePaths = "details")
+    List<Submission> findWithDetailsByIdIn(Collection<Long> ids);
+
     // 最新提交，用于管理员仪表盘
     List<Submission> findTop10ByOrderBySubmitTimeDesc();
 
@@ -2,6 +2,7 @@
 package com.CodeExamner.repository;
 
 import com.CodeExamner.entity.TestCase;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import java.util.List;
@@ -12,4 +13,7 @@ public interface TestCaseRepository extends JpaRepository<TestCase, Long> {
     List<TestCase> findByProblemIdAndIsSample(Long problemId, Boolean isSample);
 
     void deleteByProblemId(Long problemId);
+
+    // 尚未写入测试数据存储的旧测试用例
+    List<TestCase> findByInputHashIsNull(Pageable pageable);
 }
@@ -1,6 +1,7 @@
 // security/SecurityConfig.java
 package com.CodeExamner.security;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -50,7 +51,14 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(authz -> authz
+                        // SSE 等异步请求结束时的 ASYNC 分派沿用原请求已通过的鉴权
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/auth/**").permitAll()
+                        // Judge0 回调不携带 JWT，由回调地址中的一次性密钥鉴权
+                        .requestMatchers("/judge/callback").permitAll()
+                        // 健康检查供负载均衡探测，详情只对管理员展示；其他监控端点仅限管理员
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .requestMatchers("/problems/public").permitAll()
                         .requestMatchers("/problems/{id}").authenticated()
                         .requestMatchers("/problems/**").hasAnyRole("TEACHER", "ADMIN")
@@ -2,8 +2,46 @@
 package com.CodeExamner.service;
 
 import com.CodeExamner.entity.Submission;
+import com.CodeExamner.judge0.Judge0Result;
 
 public interface JudgeService {
     void judgeSubmission(Submission submission);
+
+    /**
+     * 在保存新提交之前检查能否受理评测：评测请求由本节点执行器处理且准入队列已满时抛出 JUDGE_QUEUE_FULL。
+     */
+    void ensureCapacity();
+
+    /**
+     * 在当前线程中完成评测分发，供消息队列消费者调用；失败时抛出异常，由消费者重试。
+     */
+    void judgeSubmissionNow(Submission submission);
+
     void processJudgeResult(Long submissionId, String judge0Token);
-}
\ No newline at end of file
+
+    /**
+     * 将某个测试点已结束的 Judge0 评测结果回写到提交记录，并在全部测试点完成后汇总得分。
+     */
+    void applyJudge0Result(Long submissionId, Long testCaseId, Judge0Result result);
+
+    /**
+     * 评测服务恢复（熔断器关闭）后，把暂存为 WAITING 的提交重新交给评测执行器。
+     */
+    void releaseWaitingSubmissions();
+
+    /**
+     * 接管一批评测租约已过期的提交（节点崩溃、结果轮询丢失等）重新评测，重试次数用尽的记为 SYSTEM_ERROR。
+     * 多个节点可以同时调用，同一提交只会被其中一个接管。
+     */
+    void recoverExpiredLeases();
+
+    /**
+     * 提交前的编译检查未通过：不经过评测服务，所有测试点直接记为编译错误。
+     */
+    void rejectCompilation(Submission submission, String diagnostics);
+
+    /**
+     * 把长时间未收齐的结果收集批次中已收到的结果写库，避免部分评测任务丢失时结果一直停留在内存中。
+     */
+    void flushStaleVerdicts();
+}
@@ -30,18 +30,42 @@ public class ScheduledTaskService {
     }
 
     /**
-     * 每30秒检查待评测的提交
+     * 每30秒接管评测租约已过期的待评测 / 评测中提交
      */
-    @Scheduled(fixedRate = 30000) // 30秒
+    @Scheduled(fixedDelay = 30000) // 30秒
     public void checkPendingSubmissions() {
         try {
-            // 这里可以实现检查待评测提交的逻辑
+            judgeService.recoverExpiredLeases();
             log.debug("检查待评测提交完成");
         } catch (Exception e) {
             log.error("检查待评测提交失败: {}", e.getMessage());
         }
     }
 
+    /**
+     * 评测服务恢复后释放熔断期间暂存的提交
+     */
+    @Scheduled(fixedDelayString = "${app.judge0.circuit.release-interval-ms:5000}")
+    public void releaseWaitingSubmissions() {
+        try {
+            judgeService.releaseWaitingSubmissions();
+        } catch (Exception e) {
+            log.error("释放等待评测的提交失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 保存长时间未收齐的评测结果
+     */
+    @Scheduled(fixedDelay = 60000) // 1分钟
+    public void flushStaleVerdicts() {
+        try {
+            judgeService.flushStaleVerdicts();
+        } catch (Exception e) {
+            log.error("保存未收齐的评测结果失败: {}", e.getMessage());
+        }
+    }
+
     /**
      * 每天凌晨清理过期数据
      */
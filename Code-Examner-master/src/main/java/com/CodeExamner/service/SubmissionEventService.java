@@ -0,0 +1,237 @@
+package com.CodeExamner.service;
+
+import com.CodeExamner.dto.response.SubmissionEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 提交评测进度的 SSE 推送，取代客户端轮询 GET /submissions/{id}。
+ *
+ * 连接以 Servlet 异步请求的方式挂起，不占用请求线程；每个连接有自己的有序发送队列，
+ * 由虚拟线程逐条写出，客户端较慢时不会阻塞评测结果的回写线程，队列积压超过上限时断开连接，由客户端重连。
+ *
+ * 评测事件在所属事务提交后才推送。评测结果可能在任意节点回写，而客户端只连接其中一个节点：
+ * 开启 broadcast 后事件通过 Redis 频道发给所有节点，各节点再推送给本节点上的连接。
+ */
+@Slf4j
+@Service
+public class SubmissionEventService implements InitializingBean, DisposableBean {
+
+    private static final Object HEARTBEAT = new Object();
+
+    @Autowired
+    private ObjectProvider<StringRedisTemplate> redisTemplate;
+
+    @Autowired
+    private ObjectProvider<RedisConnectionFactory> redisConnectionFactory;
+
+    // 连接的最长保持时间，超时后由客户端（EventSource）自动重连
+    @Value("${app.submission-events.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${app.submission-events.max-connections-per-user:4}")
+    private int maxConnectionsPerUser;
+
+    // 单个连接积压的事件上限
+    @Value("${app.submission-events.max-queued-events:256}")
+    private int maxQueuedEvents;
+
+    @Value("${app.submission-events.broadcast:false}")
+    private boolean broadcast;
+
+    @Value("${app.submission-events.channel:submission-events}")
+    private String channel;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!broadcast) {
+            return;
+        }
+        RedisConnectionFactory connectionFactory = redisConnectionFactory.getIfAvailable();
+        if (connectionFactory == null) {
+            log.warn("未配置 Redis，评测进度只推送给本节点上的连接");
+            broadcast = false;
+            return;
+        }
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.addMessageListener((message, pattern) -> {
+            try {
+                deliverLocally(objectMapper.readValue(message.getBody(), SubmissionEvent.class));
+            } catch (Exception e) {
+                log.warn("无法解析评测进度消息: {}", e.getMessage());
+            }
+        }, new ChannelTopic(channel));
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+        subscribers.values().forEach(list -> list.forEach(s -> s.emitter.complete()));
+        senders.shutdownNow();
+    }
+
+    /**
+     * 订阅某个用户所有提交的评测进度。同一用户的连接数超过上限时关闭最早的连接。
+     *
+     * @param initial 建立连接后首先发送的事件（例如某个提交的当前状态），可为 null
+     */
+    public SseEmitter subscribe(Long userId, SubmissionEvent initial) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(userId, emitter);
+        List<Subscriber> list = subscribers.computeIfAbsent(userId, id -> new CopyOnWriteArrayList<>());
+        list.add(subscriber);
+        while (list.size() > maxConnectionsPerUser) {
+            Subscriber oldest = list.get(0);
+            remove(oldest);
+            oldest.emitter.complete();
+        }
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        if (initial != null) {
+            subscriber.offer(initial);
+        }
+        return emitter;
+    }
+
+    /**
+     * JudgeServiceImpl 发布的评测事件，在事务提交后（没有事务时立即）推送。
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSubmissionEvent(SubmissionEvent event) {
+        if (broadcast) {
+            StringRedisTemplate template = redisTemplate.getIfAvailable();
+            if (template != null) {
+                try {
+                    // 本节点也会收到这条消息，由订阅回调统一推送
+                    template.convertAndSend(channel, objectMapper.writeValueAsString(event));
+                    return;
+                } catch (Exception e) {
+                    log.warn("广播评测进度失败，只推送给本节点上的连接: {}", e.getMessage());
+                }
+            }
+        }
+        deliverLocally(event);
+    }
+
+    // 定期发送注释行，防止代理因连接空闲而断开，同时清理已断开的连接
+    @Scheduled(fixedDelayString = "${app.submission-events.heartbeat-ms:25000}")
+    public void heartbeat() {
+        subscribers.values().forEach(list -> list.forEach(s -> s.offer(HEARTBEAT)));
+    }
+
+    private void deliverLocally(SubmissionEvent event) {
+        if (event.getStudentId() == null) {
+            return;
+        }
+        List<Subscriber> list = subscribers.get(event.getStudentId());
+        if (list != null) {
+            list.forEach(s -> s.offer(event));
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.computeIfPresent(subscriber.userId, (id, list) -> {
+            list.remove(subscriber);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    /**
+     * 一个 SSE 连接。事件先进入队列，同一时刻最多一个虚拟线程按顺序写出。
+     */
+    private class Subscriber {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final Queue<Object> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void offer(Object item) {
+            if (closed) {
+                return;
+            }
+            if (queued.incrementAndGet() > maxQueuedEvents) {
+                log.debug("评测进度连接积压过多，断开: userId={}", userId);
+                remove(this);
+                emitter.complete();
+                return;
+            }
+            queue.add(item);
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                Object item;
+                while ((item = queue.poll()) != null) {
+                    queued.decrementAndGet();
+                    if (closed) {
+                        continue;
+                    }
+                    try {
+                        if (item == HEARTBEAT) {
+                            emitter.send(SseEmitter.event().comment("ping"));
+                        } else {
+                            SubmissionEvent event = (SubmissionEvent) item;
+                            emitter.send(SseEmitter.event().name(event.getType()).data(event, MediaType.APPLICATION_JSON));
+                        }
+                    } catch (Exception e) {
+                        // 客户端已断开
+                        remove(this);
+                    }
+                }
+                draining.set(false);
+                // 释放标记后可能又有新事件入队，而入队方看到的还是 draining=true
+            } while (!queue.isEmpty() && draining.compareAndSet(false, true));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.CodeExamner.service;
+
+import com.CodeExamner.entity.Submission;
+import com.CodeExamner.entity.enums.JudgeStatus;
+import com.CodeExamner.repository.SubmissionDetailRepository;
+import com.CodeExamner.repository.SubmissionRepository;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 评测租约。开始评测和每次写回结果时续约；节点崩溃或结果轮询丢失时租约不再续期，
+ * 过期后由任意节点的巡检任务接管：在一个事务内以 SELECT ... FOR UPDATE SKIP LOCKED 锁定一批过期提交并续上租约，
+ * 多个节点同时巡检时各自拿到不同的提交，提交后租约已更新，不会被重复接管。
+ *
+ * 租约时长需大于正常评测的耗时，默认比结果收集批次的最长等待时间（accumulator.max-age-ms）更长，
+ * 部分结果迟迟不到时，先由收集批次超时写库（同时续约），仍无进展才会被接管。
+ *
+ * 接管时，评测中且在 adopt-window-ms 内分发过评测任务的提交只续约，由接管节点按记录的 token 接着轮询
+ * （例如原节点停机排空超时后让出的提交），Judge0 已经完成的工作不会浪费；其余的清除结果重新评测。
+ * 只有评测中的提交重新评测才计一次重试；仍在待评测的提交（消息队列中排队过久、请求丢失或停机排空时让出）
+ * 只是重新分发，不消耗重试次数。
+ *
+ * 开始评测前须经 claim 把提交从待评测原子地转为评测中，重新分发造成的重复请求只有一个能评测。
+ */
+@Service
+public class SubmissionLeaseService {
+
+    @Autowired
+    private SubmissionRepository submissionRepository;
+
+    @Autowired
+    private SubmissionDetailRepository submissionDetailRepository;
+
+    @Value("${app.judge.lease.duration-ms:900000}")
+    private long leaseMs;
+
+    // 重新评测次数上限，用尽后记为 SYSTEM_ERROR
+    @Value("${app.judge.lease.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${app.judge.lease.adopt-window-ms:1800000}")
+    private long adoptWindowMs;
+
+    /**
+     * 续约，由调用方随提交一起保存。
+     */
+    public void renew(Submission submission) {
+        submission.setLeaseUntil(LocalDateTime.now().plus(Duration.ofMillis(leaseMs)));
+    }
+
+    /**
+     * 开始评测：提交仍在待评测（或暂存）时转为评测中并取得租约，同时更新传入的实体；
+     * 已被其他请求开始评测或已有结果时返回 false，调用方应放弃本次评测。
+     */
+    @Transactional
+    public boolean claim(Submission submission) {
+        LocalDateTime leaseUntil = LocalDateTime.now().plus(Duration.ofMillis(leaseMs));
+        if (submissionRepository.claimForJudging(submission.getId(), leaseUntil) == 0) {
+            return false;
+        }
+        submission.setStatus(JudgeStatus.JUDGING);
+        submission.setLeaseUntil(leaseUntil);
+        return true;
+    }
+
+    /**
+     * 立即让出租约，由下一轮巡检（任意节点）接管。用于停机排空时本节点不再评测的提交，需由调用方保存。
+     * 提交保持待评测，接管时不计重试次数。
+     */
+    public void handOff(Submission submission) {
+        submission.setLeaseUntil(LocalDateTime.now());
+    }
+
+    /**
+     * 让出一批评测中提交的租约。
+     */
+    @Transactional
+    public void expire(Collection<Long> submissionIds) {
+        if (!submissionIds.isEmpty()) {
+            submissionRepository.expireLeases(submissionIds, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * 接管至多 limit 个租约已过期的提交：仍有在途评测任务的续约后由调用方恢复轮询；
+     * 仍在待评测的续约后由调用方重新分发；评测中的未超过重试上限时清除上次的测试点结果、回到待评测状态并续约，
+     * 由调用方重新分发，超过上限的记为 SYSTEM_ERROR。
+     */
+    @Transactional
+    public Claim claimExpired(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = submissionRepository.lockExpiredLeases(
+                now, now.minus(Duration.ofMillis(leaseMs)), now.minus(Duration.ofMillis(adoptWindowMs)), limit);
+        Claim claim = new Claim();
+        for (Object[] row : rows) {
+            Long id = ((Number) row[0]).longValue();
+            int retries = row[1] != null ? ((Number) row[1]).intValue() : 0;
+            if (isTrue(row[2])) {
+                claim.getAdopted().add(id);
+            } else if (!isTrue(row[3])) {
+                claim.getRequeued().add(id);
+            } else {
+                (retries >= maxRetries ? claim.getAbandoned() : claim.getRetried()).add(id);
+            }
+        }
+        if (!claim.getAdopted().isEmpty()) {
+            submissionRepository.renewLeases(claim.getAdopted(), now.plus(Duration.ofMillis(leaseMs)));
+        }
+        if (!claim.getRequeued().isEmpty()) {
+            submissionDetailRepository.deleteBySubmissionIdIn(claim.getRequeued());
+            submissionRepository.renewForRetry(claim.getRequeued(), now.plus(Duration.ofMillis(leaseMs)), 0);
+        }
+        if (!claim.getRetried().isEmpty()) {
+            submissionDetailRepository.deleteBySubmissionIdIn(claim.getRetried());
+            submissionRepository.renewForRetry(claim.getRetried(), now.plus(Duration.ofMillis(leaseMs)), 1);
+        }
+        if (!claim.getAbandoned().isEmpty()) {
+            submissionRepository.markSystemError(claim.getAbandoned());
+        }
+        return claim;
+    }
+
+    /**
+     * 撤销尚未交给评测执行器的接管，下一轮巡检时可立即再次接管，不计重试次数。
+     */
+    @Transactional
+    public void release(Claim claim, Collection<Long> submissionIds) {
+        List<Long> retried = submissionIds.stream().filter(claim.getRetried()::contains).toList();
+        List<Long> requeued = submissionIds.stream().filter(claim.getRequeued()::contains).toList();
+        if (!retried.isEmpty()) {
+            submissionRepository.releaseLeases(retried, 1);
+        }
+        if (!requeued.isEmpty()) {
+            submissionRepository.releaseLeases(requeued, 0);
+        }
+    }
+
+    // MySQL 的布尔表达式按整数返回
+    private static boolean isTrue(Object value) {
+        return value instanceof Boolean b ? b : value instanceof Number n && n.intValue() != 0;
+    }
+
+    @Data
+    public static class Claim {
+        // 接着轮询在途评测任务的提交
+        private List<Long> adopted = new ArrayList<>();
+        // 尚未开始评测、重新分发的提交
+        private List<Long> requeued = new ArrayList<>();
+        // 重新评测的提交（计一次重试）
+        private List<Long> retried = new ArrayList<>();
+        // 重试次数用尽，已记为 SYSTEM_ERROR 的提交
+        private List<Long> abandoned = new ArrayList<>();
+    }
+}
@@ -0,0 +1,250 @@
+package com.CodeExamner.service;
+
+import com.CodeExamner.entity.Problem;
+import com.CodeExamner.entity.TestCase;
+import com.CodeExamner.judge.TestDataStore;
+import com.CodeExamner.repository.TestCaseRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 评测用的测试用例缓存：按题目缓存测试用例及其输入 / 期望输出，避免每次评测都查数据库、读测试数据存储。
+ *
+ * 每个缓存项记录加载时题目的 testCaseVersion，取用时与提交所属题目的版本比对，不一致即重新加载；
+ * 题目的版本保存在数据库中，因此其他节点修改测试用例后本节点也能发现，不会用到旧数据。
+ * 开启 broadcast 后，修改测试用例时还会通过 Redis 频道通知其他节点立即释放旧版本的缓存。
+ *
+ * 缓存按内容在堆中占用的总字节数限制，超出时淘汰最久未使用的题目；单个题目的数据超过 max-entry-bytes 时
+ * 只缓存测试用例本身，内容仍按需从测试数据存储读取。
+ */
+@Slf4j
+@Service
+public class TestCaseCache implements InitializingBean, DisposableBean {
+
+    // 不含内容时每个测试用例按固定大小计入
+    private static final long TEST_CASE_OVERHEAD_BYTES = 256;
+
+    @Autowired
+    private TestCaseRepository testCaseRepository;
+
+    @Autowired
+    private TestDataStore testDataStore;
+
+    @Autowired
+    private ObjectProvider<StringRedisTemplate> redisTemplate;
+
+    @Autowired
+    private ObjectProvider<RedisConnectionFactory> redisConnectionFactory;
+
+    @Value("${app.judge.test-case-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.judge.test-case-cache.max-bytes:268435456}")
+    private long maxBytes;
+
+    @Value("${app.judge.test-case-cache.max-entry-bytes:33554432}")
+    private long maxEntryBytes;
+
+    @Value("${app.judge.test-case-cache.broadcast:false}")
+    private boolean broadcast;
+
+    @Value("${app.judge.test-case-cache.channel:judge:test-case-invalidation}")
+    private String channel;
+
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalBytes;
+
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled || !broadcast) {
+            return;
+        }
+        RedisConnectionFactory connectionFactory = redisConnectionFactory.getIfAvailable();
+        if (connectionFactory == null) {
+            log.warn("未配置 Redis，测试用例缓存失效不会广播到其他节点，仅依靠版本号校验");
+            return;
+        }
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.addMessageListener((message, pattern) ->
+                onInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)), new ChannelTopic(channel));
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+    }
+
+    /**
+     * 返回题目当前版本的全部测试用例。返回的是带内容的副本（或未缓存内容时的实体本身），调用方不得修改。
+     */
+    public List<TestCase> get(Problem problem) {
+        Long problemId = problem.getId();
+        if (!enabled) {
+            return testCaseRepository.findByProblemId(problemId);
+        }
+        int version = versionOf(problem);
+        synchronized (entries) {
+            Entry entry = entries.get(problemId);
+            if (entry != null && entry.version == version) {
+                return entry.testCases;
+            }
+        }
+
+        Entry loaded = load(problemId, version);
+        synchronized (entries) {
+            Entry current = entries.get(problemId);
+            if (current != null && current.version > version) {
+                // 加载期间其他线程已放入更新的版本，不覆盖
+                return loaded.testCases;
+            }
+            remove(problemId);
+            if (loaded.bytes <= maxBytes) {
+                entries.put(problemId, loaded);
+                totalBytes += loaded.bytes;
+                evict();
+            }
+        }
+        return loaded.testCases;
+    }
+
+    /**
+     * 修改测试用例的事务提交后（没有事务时立即）失效缓存。在事务内失效的话，其他线程可能在提交前
+     * 读到旧的测试用例，又按旧版本号重新放入缓存。
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void afterTestCasesChanged(Invalidation event) {
+        invalidate(event.problemId(), event.newVersion());
+    }
+
+    /**
+     * 测试用例被修改后调用：丢弃本节点低于 newVersion 的缓存，并在开启广播时通知其他节点。
+     */
+    public void invalidate(Long problemId, int newVersion) {
+        invalidateLocal(problemId, newVersion);
+        if (!enabled || !broadcast) {
+            return;
+        }
+        StringRedisTemplate template = redisTemplate.getIfAvailable();
+        if (template == null) {
+            return;
+        }
+        try {
+            template.convertAndSend(channel, problemId + ":" + newVersion);
+        } catch (Exception e) {
+            // 广播只是提前释放内存，其他节点取用时仍会按版本号重新加载
+            log.warn("广播测试用例缓存失效失败: problemId={}, {}", problemId, e.getMessage());
+        }
+    }
+
+    private void onInvalidation(String message) {
+        try {
+            int separator = message.indexOf(':');
+            invalidateLocal(Long.parseLong(message.substring(0, separator)),
+                    Integer.parseInt(message.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            log.warn("无法解析测试用例缓存失效消息: {}", message);
+        }
+    }
+
+    private void invalidateLocal(Long problemId, int newVersion) {
+        synchronized (entries) {
+            Entry entry = entries.get(problemId);
+            if (entry != null && entry.version < newVersion) {
+                remove(problemId);
+            }
+        }
+    }
+
+    private Entry load(Long problemId, int version) {
+        List<TestCase> testCases = testCaseRepository.findByProblemId(problemId);
+        long contentBytes = 0;
+        for (TestCase testCase : testCases) {
+            contentBytes += sizeOf(testCase);
+        }
+        long overhead = TEST_CASE_OVERHEAD_BYTES * testCases.size();
+        if (contentBytes > maxEntryBytes) {
+            return new Entry(version, List.copyOf(testCases), overhead);
+        }
+        List<TestCase> withContent = testCases.stream().map(testDataStore::withContent).toList();
+        long heapBytes = 0;
+        for (TestCase testCase : withContent) {
+            heapBytes += heapSizeOf(testCase.getInput()) + heapSizeOf(testCase.getExpectedOutput());
+        }
+        return new Entry(version, withContent, overhead + heapBytes);
+    }
+
+    // 旧数据没有记录大小，按 TEXT 列的字符数估算
+    private static long sizeOf(TestCase testCase) {
+        long input = testCase.getInputSize() != null ? testCase.getInputSize()
+                : testCase.getInput() != null ? testCase.getInput().length() : 0;
+        long expectedOutput = testCase.getExpectedOutputSize() != null ? testCase.getExpectedOutputSize()
+                : testCase.getExpectedOutput() != null ? testCase.getExpectedOutput().length() : 0;
+        return input + expectedOutput;
+    }
+
+    // 记录的是 UTF-8 字节数，而缓存保存的是 String：含 Latin-1 以外字符的字符串每个字符占两个字节
+    private static long heapSizeOf(String text) {
+        if (text == null) {
+            return 0;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0xFF) {
+                return 2L * text.length();
+            }
+        }
+        return text.length();
+    }
+
+    private static int versionOf(Problem problem) {
+        return problem.getTestCaseVersion() != null ? problem.getTestCaseVersion() : 0;
+    }
+
+    // 以下方法在持有 entries 锁时调用
+    private void remove(Long problemId) {
+        Entry removed = entries.remove(problemId);
+        if (removed != null) {
+            totalBytes -= removed.bytes;
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Long, Entry>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            totalBytes -= it.next().getValue().bytes;
+            it.remove();
+        }
+    }
+
+    private record Entry(int version, List<TestCase> testCases, long bytes) {
+    }
+
+    /**
+     * 题目的测试用例已修改为 newVersion，由修改方发布。
+     */
+    public record Invalidation(Long problemId, int newVersion) {
+    }
+}
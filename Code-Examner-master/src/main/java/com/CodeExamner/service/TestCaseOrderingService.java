@@ -0,0 +1,71 @@
+package com.CodeExamner.service;
+
+import com.CodeExamner.entity.TestCase;
+import com.CodeExamner.repository.SubmissionDetailRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按历史失败率对测试用例排序：经常失败的测试点排在前面，
+ * 配合快速失败模式，错误的提交能在最少的运行次数内被判定。
+ *
+ * 失败率来自 SubmissionDetail 的历史评测结果，按题目缓存一段时间，避免每次评测都做聚合查询。
+ */
+@Slf4j
+@Service
+public class TestCaseOrderingService {
+
+    @Autowired
+    private SubmissionDetailRepository submissionDetailRepository;
+
+    @Value("${app.judge.ordering.cache-ttl-ms:300000}")
+    private long cacheTtlMs;
+
+    private final Map<Long, FailureRates> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 返回按失败率从高到低排序后的新列表；失败率相同（包括从未评测过）时保持原有顺序。
+     */
+    public List<TestCase> sortByFailureRate(Long problemId, List<TestCase> testCases) {
+        Map<Long, Double> rates = getFailureRates(problemId);
+        List<TestCase> sorted = new ArrayList<>(testCases);
+        sorted.sort(Comparator.comparingDouble((TestCase tc) -> rates.getOrDefault(tc.getId(), 0.0)).reversed());
+        return sorted;
+    }
+
+    private Map<Long, Double> getFailureRates(Long problemId) {
+        long now = System.currentTimeMillis();
+        FailureRates cached = cache.get(problemId);
+        if (cached != null && now - cached.computedAt < cacheTtlMs) {
+            return cached.rates;
+        }
+
+        Map<Long, Double> rates = new HashMap<>();
+        try {
+            for (Object[] row : submissionDetailRepository.countOutcomesByProblemId(problemId)) {
+                long total = ((Number) row[1]).longValue();
+                long failed = row[2] != null ? ((Number) row[2]).longValue() : 0;
+                if (total > 0) {
+                    rates.put((Long) row[0], (double) failed / total);
+                }
+            }
+        } catch (Exception e) {
+            // 排序只是优化，统计失败时按原顺序评测
+            log.warn("统计测试用例失败率失败: problemId={}, {}", problemId, e.getMessage());
+        }
+        cache.put(problemId, new FailureRates(rates, now));
+        return rates;
+    }
+
+    private record FailureRates(Map<Long, Double> rates, long computedAt) {
+    }
+}
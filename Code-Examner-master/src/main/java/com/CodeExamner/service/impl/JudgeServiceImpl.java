@@ -1,49 +1,336 @@
 // service/impl/JudgeServiceImpl.java
 package com.CodeExamner.service.impl;
 
+import com.CodeExamner.dto.response.SubmissionEvent;
 import com.CodeExamner.entity.Exam;
 import com.CodeExamner.entity.ExamProblem;
+import com.CodeExamner.entity.Problem;
 import com.CodeExamner.entity.Submission;
 import com.CodeExamner.entity.SubmissionDetail;
 import com.CodeExamner.entity.TestCase;
+import com.CodeExamner.entity.enums.ExamStatus;
 import com.CodeExamner.entity.enums.JudgeStatus;
-import com.CodeExamner.judge0.Judge0Client;
+import com.CodeExamner.judge.JudgeEngine;
+import com.CodeExamner.judge.JudgeExecutor;
+import com.CodeExamner.judge.JudgeNode;
+import com.CodeExamner.judge.JudgeScheduler;
+import com.CodeExamner.judge.OutputComparator;
+import com.CodeExamner.judge.TestDataStore;
+import com.CodeExamner.judge.VerdictAccumulator;
+import com.CodeExamner.judge0.CompileOnceProgram;
+import com.CodeExamner.exception.BusinessException;
+import com.CodeExamner.exception.ErrorCode;
+import com.CodeExamner.judge0.Judge0ConcurrencyLimiter;
 import com.CodeExamner.judge0.Judge0Submission;
 import com.CodeExamner.judge0.Judge0Result;
+import com.CodeExamner.judge0.Judge0ResultPoller;
+import com.CodeExamner.judge0.Judge0UnavailableException;
+import com.CodeExamner.mq.JudgeProducer;
+import com.CodeExamner.mq.JudgeRequest;
+import com.CodeExamner.mq.RabbitMQConfig;
 import com.CodeExamner.repository.ExamProblemRepository;
+import com.CodeExamner.repository.SubmissionDetailRepository;
 import com.CodeExamner.repository.SubmissionRepository;
-import com.CodeExamner.repository.TestCaseRepository;
 import com.CodeExamner.service.JudgeService;
+import com.CodeExamner.service.SubmissionLeaseService;
+import com.CodeExamner.service.TestCaseCache;
+import com.CodeExamner.service.TestCaseOrderingService;
+import com.CodeExamner.util.SourceHashUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class JudgeServiceImpl implements JudgeService {
 
+    // 非答案错误的测试点最多保存的输出长度
+    private static final int MAX_STORED_OUTPUT_CHARS = 1024;
+
+    // 题目未配置限制时的默认值
+    private static final double DEFAULT_CPU_TIME_LIMIT = 2.0; // 2秒时间限制
+    private static final int DEFAULT_MEMORY_LIMIT_MB = 128; // 128MB内存限制
+
+    // 可以作为评测结果缓存来源的最终状态：只取由代码本身决定、重新评测结果不变的状态。
+    // 超时与机器负载有关，系统错误不是代码的问题，重新评测可能得到不同结果，不复用
+    private static final List<JudgeStatus> CACHEABLE_STATUSES = List.of(
+            JudgeStatus.ACCEPTED, JudgeStatus.WRONG_ANSWER, JudgeStatus.MEMORY_LIMIT_EXCEEDED,
+            JudgeStatus.RUNTIME_ERROR, JudgeStatus.COMPILATION_ERROR);
+
+    // 缓存来源中任一测试点为这些状态时不复用（提交整体状态只反映第一个未通过的测试点）
+    private static final Set<JudgeStatus> UNSTABLE_DETAIL_STATUSES = Set.of(
+            JudgeStatus.TIME_LIMIT_EXCEEDED, JudgeStatus.SYSTEM_ERROR);
+
+    // 启动恢复时每次加载的提交数
+    private static final int RECOVERY_BATCH_SIZE = 100;
+
+    @Autowired
+    private JudgeEngine judgeEngine;
+
+    @Autowired
+    private Judge0ResultPoller judge0ResultPoller;
+
     @Autowired
-    private Judge0Client judge0Client;
+    private Judge0ConcurrencyLimiter judge0ConcurrencyLimiter;
+
+    @Autowired
+    private JudgeExecutor judgeExecutor;
+
+    @Autowired
+    private CompileOnceProgram compileOnceProgram;
+
+    @Autowired
+    private TestCaseOrderingService testCaseOrderingService;
+
+    // 快速失败模式下每批分发的测试点数量
+    @Value("${app.judge.fail-fast.wave-size:4}")
+    private int failFastWaveSize;
+
+    // 每轮最多释放的等待中提交数，避免恢复瞬间挤满评测队列
+    @Value("${app.judge0.circuit.release-batch-size:100}")
+    private int releaseBatchSize;
+
+    // 通过 RabbitMQ 分发评测请求，评测可由多个节点的消费者分担
+    @Value("${app.judge.mq.enabled:false}")
+    private boolean mqEnabled;
+
+    @Autowired
+    private JudgeProducer judgeProducer;
+
+    // 评测进度事件，由 SubmissionEventService 推送给客户端
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private VerdictAccumulator verdictAccumulator;
+
+    // 收集批次超过该时间仍未收齐时，先把已收到的结果写库
+    @Value("${app.judge.accumulator.max-age-ms:600000}")
+    private long verdictMaxAgeMs;
+
+    @Value("${app.judge.accumulator.recover-on-startup:true}")
+    private boolean recoverOnStartup;
+
+    @Autowired
+    private SubmissionLeaseService submissionLeaseService;
+
+    @Autowired
+    private JudgeNode judgeNode;
+
+    // 每轮巡检最多接管的提交数
+    @Value("${app.judge.lease.sweep-batch-size:50}")
+    private int sweepBatchSize;
 
     @Autowired
     private SubmissionRepository submissionRepository;
 
     @Autowired
-    private TestCaseRepository testCaseRepository;
+    private SubmissionDetailRepository submissionDetailRepository;
+
+    @Autowired
+    private TestCaseCache testCaseCache;
+
+    @Autowired
+    private TestDataStore testDataStore;
 
     @Autowired
     private ExamProblemRepository examProblemRepository;
 
+    /**
+     * 启用消息队列时发送评测请求，由任意节点的消费者评测；发送失败时退回本节点评测。
+     * 否则提交到评测执行器异步评测；执行器准入队列已满时抛出 JUDGE_QUEUE_FULL。
+     */
     @Override
-    @Async
     public void judgeSubmission(Submission submission) {
+        if (mqEnabled) {
+            JudgeRequest request = new JudgeRequest();
+            request.setSubmissionId(submission.getId());
+            request.setProblemId(submission.getProblem().getId());
+            request.setLanguage(submission.getLanguage());
+            // 代码由消费者从数据库读取，消息中不携带
+            request.setPriority(laneOf(submission) == JudgeScheduler.Lane.EXAM ? RabbitMQConfig.JUDGE_MAX_PRIORITY : 0);
+            try {
+                judgeProducer.sendJudgeRequest(request);
+                return;
+            } catch (RuntimeException e) {
+                log.warn("评测请求发送失败，提交 {} 改为本节点评测: {}", submission.getId(), e.getMessage());
+            }
+        }
+        if (judgeNode.isDraining()) {
+            handOff(submission);
+            return;
+        }
+        judgeExecutor.submit(submission.getId(), submission.getStudent().getId(), laneOf(submission),
+                () -> doJudgeSubmission(submission, false));
+    }
+
+    @Override
+    public void ensureCapacity() {
+        // 启用消息队列时评测请求进入 RabbitMQ，不占用本节点的准入队列
+        if (!mqEnabled && judgeExecutor.isFull()) {
+            throw new BusinessException(ErrorCode.JUDGE_QUEUE_FULL);
+        }
+    }
+
+    // 本节点停机排空中：保持待评测并让出租约，由其他节点（或重启后的本节点）的巡检任务接管
+    private void handOff(Submission submission) {
+        submission.setStatus(JudgeStatus.PENDING);
+        submissionLeaseService.handOff(submission);
+        submissionRepository.save(submission);
+    }
+
+    @Override
+    public void judgeSubmissionNow(Submission submission) {
+        doJudgeSubmission(submission, true);
+    }
+
+    @Override
+    public void releaseWaitingSubmissions() {
+        if (!judgeEngine.isAvailable()) {
+            return;
+        }
+        List<Long> ids = submissionRepository.findIdsByStatus(JudgeStatus.WAITING, PageRequest.of(0, releaseBatchSize));
+        if (ids.isEmpty()) {
+            return;
+        }
+        int released = 0;
+        for (Submission submission : submissionRepository.findWithDetailsByIdIn(ids)) {
+            try {
+                judgeSubmission(submission);
+                released++;
+            } catch (BusinessException e) {
+                // 评测队列已满，剩余的留到下一轮
+                break;
+            }
+        }
+        log.info("评测服务已恢复，重新评测等待中的提交 {} 个", released);
+    }
+
+    @Override
+    public void recoverExpiredLeases() {
+        SubmissionLeaseService.Claim claim = submissionLeaseService.claimExpired(sweepBatchSize);
+        if (!claim.getAdopted().isEmpty()) {
+            for (Submission submission : submissionRepository.findWithDetailsByIdIn(claim.getAdopted())) {
+                forgetInFlightRuns(submission.getId());
+                try {
+                    recoverRuns(submission);
+                } catch (Exception e) {
+                    log.error("接管在途评测任务失败: submissionId={}, {}", submission.getId(), e.getMessage());
+                }
+            }
+            log.info("评测租约过期，接管在途评测任务的提交 {} 个", claim.getAdopted().size());
+        }
+        if (!claim.getAbandoned().isEmpty()) {
+            log.warn("提交多次重新评测仍未完成，记为系统错误: {}", claim.getAbandoned());
+            for (Submission submission : submissionRepository.findWithDetailsByIdIn(claim.getAbandoned())) {
+                forgetInFlightRuns(submission.getId());
+                eventPublisher.publishEvent(SubmissionEvent.of(SubmissionEvent.RESULT, submission, List.of()));
+            }
+        }
+        List<Long> redispatched = new ArrayList<>(claim.getRequeued());
+        redispatched.addAll(claim.getRetried());
+        if (redispatched.isEmpty()) {
+            return;
+        }
+        List<Long> unsubmitted = new ArrayList<>(redispatched);
+        for (Submission submission : submissionRepository.findWithDetailsByIdIn(redispatched)) {
+            forgetInFlightRuns(submission.getId());
+            try {
+                judgeSubmission(submission);
+                unsubmitted.remove(submission.getId());
+            } catch (BusinessException e) {
+                // 评测队列已满，剩余的撤销接管，留到下一轮
+                break;
+            }
+        }
+        submissionLeaseService.release(claim, unsubmitted);
+        log.info("评测租约过期，重新评测提交 {} 个（其中 {} 个尚未开始评测）",
+                redispatched.size() - unsubmitted.size(), claim.getRequeued().size());
+    }
+
+    // 本节点上该提交上一次评测的收集批次和轮询（如果还在）已经无用，丢弃
+    private void forgetInFlightRuns(Long submissionId) {
+        VerdictAccumulator.Batch batch = verdictAccumulator.get(submissionId);
+        if (batch != null) {
+            verdictAccumulator.remove(batch);
+        }
+        judge0ResultPoller.untrackSubmission(submissionId);
+    }
+
+    @Override
+    public void rejectCompilation(Submission submission, String diagnostics) {
+        List<TestCase> testCases = testCaseCache.get(submission.getProblem());
+        submission.setVerdictKey(buildVerdictKey(submission));
+        if (testCases.isEmpty()) {
+            // 没有测试点可汇总，直接记为编译错误
+            submission.setStatus(JudgeStatus.COMPILATION_ERROR);
+            submission.setScore(0);
+            submissionRepository.save(submission);
+            return;
+        }
+        for (TestCase testCase : testCases) {
+            SubmissionDetail detail = new SubmissionDetail();
+            detail.setSubmission(submission);
+            detail.setTestCase(testCase);
+            detail.setStatus(JudgeStatus.COMPILATION_ERROR);
+            detail.setErrorMessage(diagnostics);
+            submission.getDetails().add(detail);
+        }
+        aggregateSubmissionResult(submission);
+    }
+
+    // 进行中考试的提交优先评测
+    private JudgeScheduler.Lane laneOf(Submission submission) {
+        Exam exam = submission.getExam();
+        return exam != null && exam.getStatus() == ExamStatus.ONGOING
+                ? JudgeScheduler.Lane.EXAM : JudgeScheduler.Lane.PRACTICE;
+    }
+
+    /**
+     * @param rethrow 为 true 时（消息队列消费者）意外异常在保持待评测状态后继续抛出，交给消费者重试
+     */
+    private void doJudgeSubmission(Submission submission, boolean rethrow) {
+        // 原子地从待评测转为评测中：租约过期后重新分发的请求与原请求只有一个能评测，下面的状态修改也只由它进行
+        if (!submissionLeaseService.claim(submission)) {
+            log.info("提交已在评测或已完成，跳过重复的评测请求: submissionId={}", submission.getId());
+            return;
+        }
+        if (judgeNode.isDraining()) {
+            // 排空开始前已进入执行器队列的提交
+            handOff(submission);
+            return;
+        }
+        if (!judgeEngine.isAvailable()) {
+            // 评测服务熔断中，不再发请求，暂存等待恢复
+            parkSubmission(submission);
+            return;
+        }
         try {
-            // 获取题目的所有测试用例
-            List<TestCase> testCases = testCaseRepository.findByProblemId(submission.getProblem().getId());
+            // 获取题目的所有测试用例，历史上经常失败的排在前面
+            Long problemId = submission.getProblem().getId();
+            List<TestCase> testCases = testCaseOrderingService.sortByFailureRate(
+                    problemId, testCaseCache.get(submission.getProblem()));
 
             if (testCases.isEmpty()) {
                 // 未配置测试用例时，不判为运行错误，而是保持待评测状态，方便教师后续补充测试用例后重新评测
@@ -53,91 +340,635 @@ public class JudgeServiceImpl implements JudgeService {
                 return;
             }
 
-            // 更新提交状态为评测中
+            // 相同代码在相同测试用例和限制下已有评测结果时，直接复用
+            submission.setVerdictKey(buildVerdictKey(submission));
+            if (applyCachedVerdict(submission)) {
+                return;
+            }
+
+            // 更新提交状态为评测中，并取得评测租约
             submission.setStatus(JudgeStatus.JUDGING);
+            submissionLeaseService.renew(submission);
             submissionRepository.save(submission);
 
-            // 对每个测试用例进行评测
-            for (TestCase testCase : testCases) {
-                Judge0Submission judge0Submission = new Judge0Submission();
-                judge0Submission.setSourceCode(submission.getCode());
-                // 根据提交语言映射到 Judge0 的 language_id，默认使用 Java
-                judge0Submission.setLanguageId(mapLanguageToJudge0(submission.getLanguage()));
-                judge0Submission.setStdin(testCase.getInput());
-                judge0Submission.setExpectedOutput(testCase.getExpectedOutput());
-                judge0Submission.setCpuTimeLimit(2.0); // 2秒时间限制
-                judge0Submission.setMemoryLimit(128); // 128MB内存限制
-
-                // 提交到Judge0
-                Judge0Submission result = judge0Client.submitCode(judge0Submission);
-
-                if (result != null && result.getToken() != null) {
-                    // 创建提交详情记录
-                    SubmissionDetail detail = new SubmissionDetail();
-                    detail.setSubmission(submission);
-                    detail.setTestCase(testCase);
-                    detail.setStatus(JudgeStatus.JUDGING);
-                    submission.getDetails().add(detail);
-
-                    // 异步处理评测结果
-                    processJudgeResultAsync(submission.getId(), result.getToken(), testCase.getId());
-                }
+            // 编译型语言优先一次编译、多次运行；否则每个测试点一个 Judge0 评测任务
+            if (judgeEngine.supportsMultiFile(mapLanguageToJudge0(submission.getLanguage()))
+                    && compileOnceProgram.supports(submission.getLanguage(), cpuTimeLimit(submission))) {
+                dispatchCompileOnce(submission, testCases, true);
+            } else {
+                dispatchPerTestCase(submission, testCases, isFailFast(submission));
             }
 
+        } catch (Judge0UnavailableException e) {
+            log.warn("评测服务不可用，提交 {} 暂存等待恢复: {}", submission.getId(), e.getMessage());
+            parkSubmission(submission);
         } catch (Exception e) {
             log.error("评测提交失败: {}", e.getMessage());
             // 调用 Judge0 失败时，不把责任算在学生代码上，保持为待评测
             submission.setStatus(JudgeStatus.PENDING);
             submission.setScore(null);
             submissionRepository.save(submission);
+            if (rethrow) {
+                throw e;
+            }
+        }
+    }
+
+    // 暂存为 WAITING，熔断器关闭后由 releaseWaitingSubmissions 重新评测
+    private void parkSubmission(Submission submission) {
+        submission.setStatus(JudgeStatus.WAITING);
+        submission.setScore(null);
+        submissionRepository.save(submission);
+    }
+
+    /**
+     * 每个测试点一个 Judge0 评测任务，批量提交。
+     * 快速失败模式下按顺序分批（每批 fail-fast.wave-size 个）分发，其余测试点先记为 PENDING，
+     * 上一批全部通过后再分发下一批。被 Judge0 拒绝的测试点记为 SYSTEM_ERROR。
+     */
+    private void dispatchPerTestCase(Submission submission, List<TestCase> testCases, boolean failFast) {
+        List<TestCase> wave = failFast
+                ? testCases.subList(0, Math.min(failFastWaveSize, testCases.size()))
+                : testCases;
+        Map<Long, String[]> runs = submitRuns(submission, wave, true);
+
+        for (TestCase testCase : testCases) {
+            // 创建提交详情记录
+            SubmissionDetail detail = new SubmissionDetail();
+            detail.setSubmission(submission);
+            detail.setTestCase(testCase);
+            if (!wave.contains(testCase)) {
+                detail.setStatus(JudgeStatus.PENDING);
+            } else if (runs.containsKey(testCase.getId())) {
+                detail.setStatus(JudgeStatus.JUDGING);
+                markDispatched(detail, runs.get(testCase.getId())[0]);
+            } else {
+                markRejected(detail);
+            }
+            submission.getDetails().add(detail);
+        }
+        if (finishIfRejected(submission, runs, wave.size(), failFast)) {
+            return;
         }
+
+        // 先落库提交详情，保证结果回写时能找到对应的测试点
+        submissionRepository.save(submission);
+        openVerdictBatch(submission, runs.keySet());
+        trackRuns(submission.getId(), runs);
     }
 
-    @Async
-    public CompletableFuture<Void> processJudgeResultAsync(Long submissionId, String token, Long testCaseId) {
+    /**
+     * 快速失败模式下，上一批测试点全部通过后分发下一批 PENDING 测试点。
+     */
+    private void dispatchNextWave(Submission submission) {
+        List<SubmissionDetail> next = submission.getDetails().stream()
+                .filter(d -> d.getStatus() == JudgeStatus.PENDING)
+                .limit(failFastWaveSize)
+                .toList();
+        dispatchWave(submission, next, true);
+    }
+
+    // 为已有的提交详情逐个测试点分发评测任务（在结果回写线程上调用，不等待在途名额）
+    private void dispatchWave(Submission submission, List<SubmissionDetail> details, boolean failFast) {
+        Map<Long, String[]> runs = submitRuns(submission, details.stream().map(SubmissionDetail::getTestCase).toList(), false);
+        for (SubmissionDetail detail : details) {
+            if (runs.containsKey(detail.getTestCase().getId())) {
+                detail.setStatus(JudgeStatus.JUDGING);
+                detail.setCompileOnceRun(false);
+                markDispatched(detail, runs.get(detail.getTestCase().getId())[0]);
+            } else {
+                markRejected(detail);
+            }
+        }
+        if (finishIfRejected(submission, runs, details.size(), failFast)) {
+            return;
+        }
+        submissionRepository.save(submission);
+        openVerdictBatch(submission, runs.keySet());
+        trackRuns(submission.getId(), runs);
+    }
+
+    private void markRejected(SubmissionDetail detail) {
+        detail.setStatus(JudgeStatus.SYSTEM_ERROR);
+        detail.setErrorMessage("评测服务拒绝了该测试点");
+    }
+
+    /**
+     * 本批没有可等待的评测任务，或快速失败模式下有测试点被拒绝（已确定不通过）时，
+     * 取消本批已创建的评测任务，其余测试点记为 SKIPPED，并立即汇总提交结果。
+     *
+     * @return 是否已结束本次评测
+     */
+    private boolean finishIfRejected(Submission submission, Map<Long, String[]> runs, int dispatched, boolean failFast) {
+        boolean rejected = runs.size() < dispatched;
+        if (!runs.isEmpty() && !(failFast && rejected)) {
+            return false;
+        }
+        runs.values().forEach(run -> judgeEngine.cancel(run[0]));
+        judge0ConcurrencyLimiter.release(runs.size());
+        for (SubmissionDetail detail : submission.getDetails()) {
+            if (detail.getStatus() == JudgeStatus.PENDING || detail.getStatus() == JudgeStatus.JUDGING) {
+                detail.setStatus(JudgeStatus.SKIPPED);
+            }
+        }
+        aggregateSubmissionResult(submission);
+        return true;
+    }
+
+    // 记录评测任务的 token 以及分发它的节点和时间，重启或其他节点接管时据此恢复轮询
+    private void markDispatched(SubmissionDetail detail, String token) {
+        detail.setJudgeToken(token);
+        detail.setJudgeNode(judgeNode.getId());
+        detail.setDispatchedAt(LocalDateTime.now());
+    }
+
+    // 登记本批已分发的测试点，结果由 collectVerdict 在内存中收集；需在 trackRuns 之前调用
+    private void openVerdictBatch(Submission submission, Collection<Long> testCaseIds) {
+        if (testCaseIds.isEmpty()) {
+            return;
+        }
+        List<TestCase> dispatched = submission.getDetails().stream()
+                .map(SubmissionDetail::getTestCase)
+                .filter(tc -> testCaseIds.contains(tc.getId()))
+                .toList();
+        int judged = (int) submission.getDetails().stream()
+                .filter(d -> d.getStatus() != JudgeStatus.PENDING && d.getStatus() != JudgeStatus.JUDGING)
+                .count();
+        verdictAccumulator.open(submission.getId(), submission.getStudent().getId(), submission.getProblem(),
+                dispatched, judged, submission.getDetails().size());
+    }
+
+    /**
+     * 为每个测试用例构造一个 Judge0 评测任务，一次批量提交，避免 N 次 HTTP 往返。
+     * 返回 测试用例ID -> [token, 回调密钥]，被 Judge0 拒绝的测试点不在结果中。
+     *
+     * @param waitForLimit 是否等待在途上限腾出名额；在结果回写线程上续发时为 false
+     */
+    private Map<Long, String[]> submitRuns(Submission submission, List<TestCase> testCases, boolean waitForLimit) {
+        List<Judge0Submission> batch = new ArrayList<>(testCases.size());
+        List<String> callbackSecrets = new ArrayList<>(testCases.size());
+        for (TestCase testCase : testCases) {
+            Judge0Submission judge0Submission = buildJudge0Submission(submission, testCase);
+            callbackSecrets.add(judge0ResultPoller.prepareCallback(judge0Submission));
+            batch.add(judge0Submission);
+        }
+        List<Judge0Submission> created = submitWithinLimit(batch.size(), waitForLimit,
+                () -> judgeEngine.submitBatch(batch));
+
+        Map<Long, String[]> runs = new LinkedHashMap<>();
+        for (int i = 0; i < testCases.size(); i++) {
+            TestCase testCase = testCases.get(i);
+            String token = created.get(i).getToken();
+            if (token == null) {
+                judge0ConcurrencyLimiter.release(1);
+                log.warn("Judge0拒绝了测试用例 {} 的评测任务: submissionId={}", testCase.getId(), submission.getId());
+                continue;
+            }
+            runs.put(testCase.getId(), new String[]{token, callbackSecrets.get(i)});
+        }
+        return runs;
+    }
+
+    // 先占用在途名额再提交，提交失败时归还；名额在结果回写或放弃轮询时由 Judge0ResultPoller 归还
+    private <T> T submitWithinLimit(int runs, boolean waitForLimit, Supplier<T> submit) {
+        if (waitForLimit) {
+            judge0ConcurrencyLimiter.acquire(runs);
+        } else {
+            judge0ConcurrencyLimiter.acquireNow(runs);
+        }
         try {
-            // 等待评测完成
-            Thread.sleep(2000);
+            return submit.get();
+        } catch (RuntimeException e) {
+            judge0ConcurrencyLimiter.release(runs);
+            throw e;
+        }
+    }
+
+    // 交给结果轮询器登记：优先等待 Judge0 回调，超时未回调的再批量轮询
+    private void trackRuns(Long submissionId, Map<Long, String[]> runs) {
+        runs.forEach((testCaseId, run) -> judge0ResultPoller.track(submissionId, testCaseId, run[0], run[1]));
+    }
 
-            Judge0Result result = judge0Client.getSubmissionResult(token);
-            if (result != null && result.getStatus() != null) {
-                updateSubmissionDetail(submissionId, testCaseId, result);
+    /**
+     * 把源码和测试输入打包为一个 Judge0 Multi-file 任务：只编译一次，依次运行每个测试点。
+     * 结果回写时 testCaseId 为 null，由 applyCompileOnceResult 拆分到各个测试点。
+     *
+     * @param createDetails 首次分发时为 true；续跑剩余测试点时提交详情已经存在
+     */
+    private void dispatchCompileOnce(Submission submission, List<TestCase> testCases, boolean createDetails) {
+        Judge0Submission program = compileOnceProgram.build(submission.getLanguage(), submission.getCode(),
+                testCases, cpuTimeLimit(submission), memoryLimitMb(submission), isFailFast(submission),
+                submission.getProblem().getOutputCompareMode());
+        String secret = judge0ResultPoller.prepareCallback(program);
+
+        // 整个程序在 Judge0 中只占一个 worker，按一个在途任务计
+        Judge0Submission created = submitWithinLimit(1, createDetails, () -> judgeEngine.submit(program));
+        if (created == null || created.getToken() == null) {
+            judge0ConcurrencyLimiter.release(1);
+            throw new RuntimeException("评测服务暂时不可用");
+        }
+
+        if (createDetails) {
+            for (TestCase testCase : testCases) {
+                SubmissionDetail detail = new SubmissionDetail();
+                detail.setSubmission(submission);
+                detail.setTestCase(testCase);
+                detail.setStatus(JudgeStatus.JUDGING);
+                submission.getDetails().add(detail);
             }
-        } catch (Exception e) {
-            log.error("处理评测结果失败: {}", e.getMessage());
         }
-        return CompletableFuture.completedFuture(null);
+        Set<Long> ids = testCases.stream().map(TestCase::getId).collect(Collectors.toSet());
+        for (SubmissionDetail detail : submission.getDetails()) {
+            if (ids.contains(detail.getTestCase().getId())) {
+                markDispatched(detail, created.getToken());
+                detail.setCompileOnceRun(true);
+            }
+        }
+        submissionLeaseService.renew(submission);
+        submissionRepository.save(submission);
+
+        judge0ResultPoller.track(submission.getId(), null, created.getToken(), secret);
+    }
+
+    private Judge0Submission buildJudge0Submission(Submission submission, TestCase testCase) {
+        Judge0Submission judge0Submission = new Judge0Submission();
+        judge0Submission.setSourceCode(submission.getCode());
+        // 根据提交语言映射到 Judge0 的 language_id，默认使用 Java
+        judge0Submission.setLanguageId(mapLanguageToJudge0(submission.getLanguage()));
+        judge0Submission.setStdin(testDataStore.input(testCase));
+        // 不发送期望输出：评测服务只负责运行，正常退出的测试点在本地按题目的比对方式比对输出
+        judge0Submission.setCpuTimeLimit(cpuTimeLimit(submission));
+        // Judge0 的 memory_limit 单位为 KB
+        judge0Submission.setMemoryLimit(memoryLimitMb(submission) * 1024);
+        return judge0Submission;
+    }
+
+    // 单个测试点的时间限制（秒），取自题目配置（毫秒）
+    private double cpuTimeLimit(Submission submission) {
+        Integer timeLimitMs = submission.getProblem().getTimeLimit();
+        return timeLimitMs != null && timeLimitMs > 0 ? timeLimitMs / 1000.0 : DEFAULT_CPU_TIME_LIMIT;
+    }
+
+    // 单个测试点的内存限制（MB），取自题目配置
+    private int memoryLimitMb(Submission submission) {
+        Integer memoryLimit = submission.getProblem().getMemoryLimit();
+        return memoryLimit != null && memoryLimit > 0 ? memoryLimit : DEFAULT_MEMORY_LIMIT_MB;
+    }
+
+    /**
+     * 评测结果缓存键：规范化源码 + 语言 + 题目及其测试用例版本 + 时间/内存限制 + 快速失败模式 + 输出比对方式。
+     * 测试用例变更会递增版本号，因此不会命中基于旧测试用例的结果。
+     */
+    private String buildVerdictKey(Submission submission) {
+        Problem problem = submission.getProblem();
+        String language = submission.getLanguage() != null ? submission.getLanguage().trim().toLowerCase() : "";
+        return SourceHashUtil.sha256(
+                SourceHashUtil.normalize(submission.getCode()),
+                language,
+                String.valueOf(problem.getId()),
+                String.valueOf(problem.getTestCaseVersion() != null ? problem.getTestCaseVersion() : 0),
+                String.valueOf(cpuTimeLimit(submission)),
+                String.valueOf(memoryLimitMb(submission)),
+                String.valueOf(isFailFast(submission)),
+                String.valueOf(problem.getOutputCompareMode()),
+                String.valueOf(problem.getFloatEpsilon()));
+    }
+
+    /**
+     * 命中评测结果缓存时，复制缓存提交的每个测试点结果（包括编译错误信息）并汇总得分。
+     */
+    private boolean applyCachedVerdict(Submission submission) {
+        Submission cached = submissionRepository.findFirstByVerdictKeyAndStatusInAndIdNotOrderByIdDesc(
+                submission.getVerdictKey(), CACHEABLE_STATUSES, submission.getId()).orElse(null);
+        if (cached == null) {
+            return false;
+        }
+        List<SubmissionDetail> cachedDetails = submissionDetailRepository.findBySubmissionId(cached.getId());
+        if (cachedDetails.isEmpty()
+                || cachedDetails.stream().anyMatch(d -> UNSTABLE_DETAIL_STATUSES.contains(d.getStatus()))) {
+            return false;
+        }
+
+        for (SubmissionDetail cachedDetail : cachedDetails) {
+            SubmissionDetail detail = new SubmissionDetail();
+            detail.setSubmission(submission);
+            detail.setTestCase(cachedDetail.getTestCase());
+            detail.setStatus(cachedDetail.getStatus());
+            detail.setTimeUsed(cachedDetail.getTimeUsed());
+            detail.setMemoryUsed(cachedDetail.getMemoryUsed());
+            detail.setOutput(cachedDetail.getOutput());
+            detail.setErrorMessage(cachedDetail.getErrorMessage());
+            submission.getDetails().add(detail);
+        }
+        log.debug("命中评测结果缓存: submissionId={}, cachedSubmissionId={}", submission.getId(), cached.getId());
+        aggregateSubmissionResult(submission);
+        return true;
     }
 
-    private void updateSubmissionDetail(Long submissionId, Long testCaseId, Judge0Result result) {
+    @Override
+    @Transactional
+    public void applyJudge0Result(Long submissionId, Long testCaseId, Judge0Result result) {
+        if (testCaseId != null && collectVerdict(submissionId, testCaseId, result)) {
+            return;
+        }
+
         Submission submission = submissionRepository.findById(submissionId).orElse(null);
         if (submission == null) return;
 
+        if (testCaseId == null) {
+            applyCompileOnceResult(submission, result);
+            return;
+        }
+
+        // 没有登记收集批次（例如批次已超时写库）时，直接回写到提交详情
         SubmissionDetail detail = submission.getDetails().stream()
                 .filter(d -> d.getTestCase().getId().equals(testCaseId))
                 .findFirst()
                 .orElse(null);
 
-        if (detail != null) {
-            // 根据Judge0状态更新评测状态
-            JudgeStatus status = mapJudge0Status(result.getStatus().getId());
-            detail.setStatus(status);
-            detail.setOutput(result.getStdout());
-            detail.setErrorMessage(result.getStderr() != null ? result.getStderr() : result.getCompileOutput());
+        // 已经回写过的测试点不再重复处理
+        if (detail != null && detail.getStatus() == JudgeStatus.JUDGING) {
+            applyRunResult(detail, submission.getProblem(), result);
+            eventPublisher.publishEvent(SubmissionEvent.of(SubmissionEvent.PROGRESS, submission, List.of(detail)));
+            finishRun(submission, detail.getStatus() != JudgeStatus.ACCEPTED);
+        }
+    }
 
-            if (result.getTime() != null) {
-                detail.setTimeUsed((int)(Double.parseDouble(result.getTime()) * 1000));
+    @Override
+    public void flushStaleVerdicts() {
+        for (VerdictAccumulator.Batch batch : verdictAccumulator.closeStale(verdictMaxAgeMs)) {
+            log.warn("提交 {} 的部分测试点长时间未出结果，先保存已收到的 {} 个结果",
+                    batch.getSubmissionId(), batch.getVerdicts().size());
+            try {
+                flushVerdicts(batch);
+            } catch (Exception e) {
+                log.error("保存评测结果失败: submissionId={}, {}", batch.getSubmissionId(), e.getMessage());
             }
-            if (result.getMemory() != null) {
-                detail.setMemoryUsed(result.getMemory().intValue());
+        }
+    }
+
+    /**
+     * 启动时恢复上次运行中已分发但尚未出结果的评测任务：按提交详情中记录的 token 重新登记收集批次和轮询，并续约。
+     * 只恢复本节点分发的任务（以及未记录节点的旧数据），其他节点的任务在其租约过期后由巡检接管。
+     * 重启前的回调密钥已经丢失，这些任务只通过轮询取结果。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverInFlightRuns() {
+        if (!recoverOnStartup) {
+            return;
+        }
+        List<Long> ids = submissionDetailRepository.findSubmissionIdsWithJudgingTokens(judgeNode.getId());
+        int recovered = 0;
+        for (int from = 0; from < ids.size(); from += RECOVERY_BATCH_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + RECOVERY_BATCH_SIZE, ids.size()));
+            for (Submission submission : submissionRepository.findWithDetailsByIdIn(chunk)) {
+                try {
+                    recoverRuns(submission);
+                    recovered++;
+                } catch (Exception e) {
+                    log.error("恢复评测任务失败: submissionId={}, {}", submission.getId(), e.getMessage());
+                }
             }
+        }
+        if (recovered > 0) {
+            log.info("已恢复 {} 个提交的在途评测任务", recovered);
+        }
+    }
 
-            // 先保存当前测试点的评测结果
+    private void recoverRuns(Submission submission) {
+        Map<String, Long> perTestCase = new LinkedHashMap<>();
+        Set<String> compileOnce = new LinkedHashSet<>();
+        for (SubmissionDetail detail : submission.getDetails()) {
+            if (detail.getStatus() != JudgeStatus.JUDGING || detail.getJudgeToken() == null) {
+                continue;
+            }
+            // 改由本节点轮询，下次重启时仍能恢复
+            detail.setJudgeNode(judgeNode.getId());
+            if (Boolean.TRUE.equals(detail.getCompileOnceRun())) {
+                compileOnce.add(detail.getJudgeToken());
+            } else {
+                perTestCase.put(detail.getJudgeToken(), detail.getTestCase().getId());
+            }
+        }
+        submissionLeaseService.renew(submission);
+        submissionRepository.save(submission);
+        if (!perTestCase.isEmpty()) {
+            openVerdictBatch(submission, perTestCase.values());
+        }
+        judge0ConcurrencyLimiter.acquireNow(perTestCase.size() + compileOnce.size());
+        perTestCase.forEach((token, testCaseId) -> judge0ResultPoller.track(submission.getId(), testCaseId, token, null));
+        compileOnce.forEach(token -> judge0ResultPoller.track(submission.getId(), null, token, null));
+    }
+
+    /**
+     * 本提交有登记的收集批次时，只在内存中计算并记录该测试点的结果，不访问数据库；
+     * 本批收齐（或快速失败遇到未通过的测试点）时由拿到 COMPLETE 的线程一次性写库。
+     *
+     * @return 是否已由收集批次处理
+     */
+    private boolean collectVerdict(Long submissionId, Long testCaseId, Judge0Result result) {
+        VerdictAccumulator.Batch batch = verdictAccumulator.get(submissionId);
+        if (batch == null || !batch.covers(testCaseId)) {
+            return false;
+        }
+        SubmissionDetail verdict = new SubmissionDetail();
+        verdict.setTestCase(batch.testCase(testCaseId));
+        applyRunResult(verdict, batch.getProblem(), result);
+
+        VerdictAccumulator.Outcome outcome = batch.record(testCaseId, verdict);
+        if (outcome == VerdictAccumulator.Outcome.IGNORED) {
+            return true;
+        }
+        eventPublisher.publishEvent(SubmissionEvent.progress(submissionId, batch.getStudentId(),
+                batch.getJudgedCases(), batch.getTotalCases(), verdict));
+        if (outcome == VerdictAccumulator.Outcome.COMPLETE) {
+            flushVerdicts(batch);
+        }
+        return true;
+    }
+
+    /**
+     * 把一批收集到的结果复制到提交详情上，与提交的最终状态一起保存（同一事务内只写一次库）。
+     */
+    private void flushVerdicts(VerdictAccumulator.Batch batch) {
+        verdictAccumulator.remove(batch);
+        List<Submission> found = submissionRepository.findWithDetailsByIdIn(List.of(batch.getSubmissionId()));
+        if (found.isEmpty()) {
+            return;
+        }
+        Submission submission = found.get(0);
+        boolean anyFailed = false;
+        for (SubmissionDetail detail : submission.getDetails()) {
+            SubmissionDetail verdict = batch.getVerdicts().get(detail.getTestCase().getId());
+            if (verdict == null || detail.getStatus() != JudgeStatus.JUDGING) {
+                continue;
+            }
+            detail.setStatus(verdict.getStatus());
+            detail.setOutput(verdict.getOutput());
+            detail.setErrorMessage(verdict.getErrorMessage());
+            detail.setTimeUsed(verdict.getTimeUsed());
+            detail.setMemoryUsed(verdict.getMemoryUsed());
+            anyFailed |= verdict.getStatus() != JudgeStatus.ACCEPTED;
+        }
+        finishRun(submission, anyFailed);
+    }
+
+    // 把一个测试点的评测结果（状态、输出、耗时、内存）写到 detail 上
+    private void applyRunResult(SubmissionDetail detail, Problem problem, Judge0Result result) {
+        detail.setStatus(mapJudge0Status(result.getStatus().getId()));
+        detail.setErrorMessage(result.getStderr() != null ? result.getStderr()
+                : result.getCompileOutput() != null ? result.getCompileOutput() : result.getMessage());
+        applyOutput(detail, problem, result.getStdout(),
+                Boolean.TRUE.equals(result.getStdoutTruncated()) ? result.getStdoutSize() : null);
+        if (result.getTime() != null) {
+            detail.setTimeUsed((int)(Double.parseDouble(result.getTime()) * 1000));
+        }
+        if (result.getMemory() != null) {
+            detail.setMemoryUsed(result.getMemory().intValue());
+        }
+    }
+
+    /**
+     * 测试点结果回写后的后续处理：快速失败模式下有未通过的测试点时跳过其余测试点，
+     * 本波全部通过时分发下一波；否则保存，并在全部测试点完成时汇总。
+     */
+    private void finishRun(Submission submission, boolean anyFailed) {
+        // 有进展，续约
+        submissionLeaseService.renew(submission);
+        if (isFailFast(submission)) {
+            if (anyFailed) {
+                // 已经确定得 0 分，剩余测试点不再评测
+                skipRemaining(submission);
+            } else if (submission.getDetails().stream().noneMatch(d -> d.getStatus() == JudgeStatus.JUDGING)
+                    && submission.getDetails().stream().anyMatch(d -> d.getStatus() == JudgeStatus.PENDING)) {
+                try {
+                    dispatchNextWave(submission);
+                } catch (Exception e) {
+                    log.error("分发下一批测试点失败: submissionId={}, {}", submission.getId(), e.getMessage());
+                    submissionRepository.save(submission);
+                }
+                return;
+            }
+        }
+
+        // 先保存测试点的评测结果
+        submissionRepository.save(submission);
+
+        // 如果所有测试点都已完成评测，则汇总更新提交的最终状态与得分
+        aggregateSubmissionResult(submission);
+    }
+
+    private void applyCompileOnceResult(Submission submission, Judge0Result result) {
+        List<SubmissionDetail> judging = submission.getDetails().stream()
+                .filter(d -> d.getStatus() == JudgeStatus.JUDGING)
+                .toList();
+        if (judging.isEmpty()) {
+            return;
+        }
+
+        Map<Long, CompileOnceProgram.CaseOutcome> outcomes = compileOnceProgram.parse(result,
+                judging.stream().map(d -> d.getTestCase().getId()).toList());
+
+        List<TestCase> unfinished = new ArrayList<>();
+        for (SubmissionDetail detail : judging) {
+            CompileOnceProgram.CaseOutcome outcome = outcomes.get(detail.getTestCase().getId());
+            if (outcome == null) {
+                unfinished.add(detail.getTestCase());
+                continue;
+            }
+            detail.setStatus(outcome.getStatus());
+            detail.setErrorMessage(outcome.getErrorMessage());
+            detail.setTimeUsed(outcome.getTimeUsed());
+            applyOutput(detail, submission.getProblem(), outcome.getOutput(), null);
+        }
+        List<SubmissionDetail> finished = judging.stream().filter(d -> d.getStatus() != JudgeStatus.JUDGING).toList();
+        if (!finished.isEmpty()) {
+            eventPublisher.publishEvent(SubmissionEvent.of(SubmissionEvent.PROGRESS, submission, finished));
+        }
+
+        boolean anyFailed = judging.stream().anyMatch(d -> d.getStatus() != JudgeStatus.JUDGING
+                && d.getStatus() != JudgeStatus.ACCEPTED);
+        if (!unfinished.isEmpty() && isFailFast(submission) && anyFailed) {
+            // 快速失败：run 脚本在第一个未通过的测试点后已停止
+            skipRemaining(submission);
+        } else if (!unfinished.isEmpty()) {
+            boolean timeExhausted = result.getStatus() != null && Integer.valueOf(5).equals(result.getStatus().getId());
+            boolean outputTruncated = Boolean.TRUE.equals(result.getStdoutTruncated());
             submissionRepository.save(submission);
+            try {
+                if ((timeExhausted || outputTruncated) && !outcomes.isEmpty()) {
+                    // 整体时间上限耗尽或输出被截断但已有进展：剩余测试点重新打包继续运行
+                    dispatchCompileOnce(submission, unfinished, false);
+                } else {
+                    // 整体任务异常终止（沙箱内部错误、超出文件大小限制等）或没有任何进展，无法归咎于某个测试点：
+                    // 剩余测试点改为逐个评测，由各自的结果决定
+                    log.warn("一次编译任务异常终止（{}），剩余 {} 个测试点改为逐个评测: submissionId={}",
+                            result.getStatus() != null ? result.getStatus().getDescription() : null,
+                            unfinished.size(), submission.getId());
+                    dispatchWave(submission, judging.stream().filter(d -> d.getStatus() == JudgeStatus.JUDGING).toList(),
+                            isFailFast(submission));
+                }
+            } catch (Exception e) {
+                // 保持评测中，租约过期后由巡检接管重试
+                log.error("续跑剩余测试点失败: submissionId={}, {}", submission.getId(), e.getMessage());
+            }
+            return;
+        }
+
+        submissionRepository.save(submission);
+        aggregateSubmissionResult(submission);
+    }
+
+    private boolean isFailFast(Submission submission) {
+        return Boolean.TRUE.equals(submission.getProblem().getFailFast());
+    }
 
-            // 如果所有测试点都已完成评测，则汇总更新提交的最终状态与得分
-            aggregateSubmissionResult(submission);
+    /**
+     * 快速失败：把尚未出结果的测试点记为 SKIPPED，并停止轮询它们的评测结果。
+     */
+    private void skipRemaining(Submission submission) {
+        for (SubmissionDetail detail : submission.getDetails()) {
+            if (detail.getStatus() == JudgeStatus.PENDING || detail.getStatus() == JudgeStatus.JUDGING) {
+                detail.setStatus(JudgeStatus.SKIPPED);
+            }
         }
+        judge0ResultPoller.untrackSubmission(submission.getId());
+        judgeExecutor.cancel(submission.getId());
+    }
+
+    /**
+     * 正常退出的测试点按题目的比对方式在本地比对输出，不一致时改为 WRONG_ANSWER，
+     * 只保存第一处不一致的那一行；其余状态只保存输出的开头部分，便于排查运行错误。
+     *
+     * @param truncatedSize 输出超过上限被截断时为原始字节数：保留部分已经不一致时照常给出差异行，否则判为输出过长
+     */
+    private void applyOutput(SubmissionDetail detail, Problem problem, String stdout, Long truncatedSize) {
+        if (detail.getStatus() != JudgeStatus.ACCEPTED) {
+            detail.setOutput(stdout != null && stdout.length() > MAX_STORED_OUTPUT_CHARS
+                    ? stdout.substring(0, MAX_STORED_OUTPUT_CHARS) + "..." : stdout);
+            return;
+        }
+        // 期望输出从测试数据存储流式读取，不整体解压到内存
+        OutputComparator.Result comparison;
+        try (Reader expected = testDataStore.expectedOutputReader(detail.getTestCase())) {
+            comparison = OutputComparator.compare(expected, new StringReader(stdout != null ? stdout : ""),
+                    problem.getOutputCompareMode(), problem.getFloatEpsilon());
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取期望输出失败", e);
+        }
+        if (comparison.matched() && truncatedSize != null) {
+            detail.setStatus(JudgeStatus.WRONG_ANSWER);
+            detail.setOutput(null);
+            detail.setErrorMessage("输出过长（共 " + truncatedSize + " 字节），超过上限");
+            return;
+        }
+        if (comparison.matched()) {
+            detail.setOutput(null);
+            return;
+        }
+        detail.setStatus(JudgeStatus.WRONG_ANSWER);
+        detail.setOutput(comparison.actualLine());
+        detail.setErrorMessage(comparison.describe());
     }
 
     @Override
@@ -172,9 +1003,11 @@ public class JudgeServiceImpl implements JudgeService {
             case 10: // Runtime Error (SIGABRT)
             case 11: // Runtime Error (NZEC)
             case 12: // Runtime Error (Other)
+                return JudgeStatus.RUNTIME_ERROR;
             case 13: // Internal Error
             case 14: // Exec Format Error
-                return JudgeStatus.RUNTIME_ERROR;
+                // 评测沙箱自身的错误，不是学生代码的运行错误
+                return JudgeStatus.SYSTEM_ERROR;
             default:
                 return JudgeStatus.RUNTIME_ERROR;
         }
@@ -211,6 +1044,7 @@ public class JudgeServiceImpl implements JudgeService {
      * 当前策略：
      * - 所有测试点都 ACCEPTED：提交状态设为 ACCEPTED，得分为该题在考试中的满分（或普通提交给 100 分）。
      * - 只要有一个测试点非 ACCEPTED：提交状态为第一个非 ACCEPTED 的状态，得分为 0。
+     * - 快速失败模式下被跳过（SKIPPED）的测试点视为已完成，但不参与状态判定。
      * - timeUsed 取所有测试点 timeUsed 之和，memoryUsed 取所有测试点 memoryUsed 的最大值。
      */
     private void aggregateSubmissionResult(Submission submission) {
@@ -251,16 +1085,18 @@ public class JudgeServiceImpl implements JudgeService {
             submission.setStatus(JudgeStatus.ACCEPTED);
             submission.setScore(fullScore);
         } else {
-            // 至少有一个测试点未通过，得分记 0，状态取第一个非 ACCEPTED 的状态
+            // 至少有一个测试点未通过，得分记 0，状态取第一个非 ACCEPTED 的状态（跳过的测试点不计）
             JudgeStatus firstBadStatus = submission.getDetails().stream()
                     .map(SubmissionDetail::getStatus)
-                    .filter(s -> s != JudgeStatus.ACCEPTED)
+                    .filter(s -> s != JudgeStatus.ACCEPTED && s != JudgeStatus.SKIPPED)
                     .findFirst()
                     .orElse(JudgeStatus.RUNTIME_ERROR);
             submission.setStatus(firstBadStatus);
             submission.setScore(0);
         }
+        submission.setLeaseUntil(null);
 
         submissionRepository.save(submission);
+        eventPublisher.publishEvent(SubmissionEvent.of(SubmissionEvent.RESULT, submission, submission.getDetails()));
     }
 }
@@ -6,20 +6,29 @@ import com.CodeExamner.entity.TestCase;
 import com.CodeExamner.entity.User;
 import com.CodeExamner.entity.enums.Difficulty;
 import com.CodeExamner.entity.enums.UserRole;
+import com.CodeExamner.judge.TestDataStore;
 import com.CodeExamner.repository.ProblemRepository;
 import com.CodeExamner.repository.TestCaseRepository;
 import com.CodeExamner.service.ProblemService;
+import com.CodeExamner.service.TestCaseCache;
 import com.CodeExamner.service.UserService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.persistence.criteria.Predicate;
 import java.util.ArrayList;
 import java.util.List;
 
+@Slf4j
 @Service
 public class ProblemServiceImpl implements ProblemService {
 
@@ -32,6 +41,12 @@ public class ProblemServiceImpl implements ProblemService {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private TestDataStore testDataStore;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Override
     public Problem createProblem(Problem problem) {
         User currentUser = userService.getCurrentUser();
@@ -51,6 +66,9 @@ public class ProblemServiceImpl implements ProblemService {
         existingProblem.setTimeLimit(problem.getTimeLimit());
         existingProblem.setMemoryLimit(problem.getMemoryLimit());
         existingProblem.setIsPublic(problem.getIsPublic());
+        existingProblem.setFailFast(problem.getFailFast());
+        existingProblem.setOutputCompareMode(problem.getOutputCompareMode());
+        existingProblem.setFloatEpsilon(problem.getFloatEpsilon());
 
         return problemRepository.save(existingProblem);
     }
@@ -106,7 +124,9 @@ public class ProblemServiceImpl implements ProblemService {
         checkProblemOwnership(problem);
 
         testCase.setProblem(problem);
+        testDataStore.externalize(testCase);
         testCaseRepository.save(testCase);
+        bumpTestCaseVersion(problem);
 
         return problem;
     }
@@ -116,16 +136,21 @@ public class ProblemServiceImpl implements ProblemService {
         Problem problem = getProblemById(problemId);
         checkProblemOwnership(problem);
 
-        return testCaseRepository.findByProblemId(problemId);
+        return testCaseRepository.findByProblemId(problemId).stream()
+                .map(testDataStore::withContent)
+                .toList();
     }
 
     @Override
     public List<TestCase> getSampleTestCases(Long problemId) {
         Problem problem = getProblemById(problemId);
-        return testCaseRepository.findByProblemIdAndIsSample(problemId, true);
+        return testCaseRepository.findByProblemIdAndIsSample(problemId, true).stream()
+                .map(testDataStore::withContent)
+                .toList();
     }
 
     @Override
+    @Transactional
     public void replaceTestCases(Long problemId, List<TestCase> testCases) {
         Problem problem = getProblemById(problemId);
         checkProblemOwnership(problem);
@@ -133,11 +158,39 @@ public class ProblemServiceImpl implements ProblemService {
         // 先删掉该题目下的所有旧测试用例
         testCaseRepository.deleteByProblemId(problemId);
 
-        // 再逐个保存新的测试用例
+        // 再保存新的测试用例，在同一事务内一次 flush，按 jdbc.batch_size 批量插入
         for (TestCase testCase : testCases) {
             testCase.setId(null); // 防止带入旧 ID
             testCase.setProblem(problem);
-            testCaseRepository.save(testCase);
+            testDataStore.externalize(testCase);
+        }
+        testCaseRepository.saveAll(testCases);
+        bumpTestCaseVersion(problem);
+    }
+
+    /**
+     * 启动后把仍保存在数据库 TEXT 列中的旧测试用例写入测试数据存储，并清空这两列。
+     * 内容不变，不递增 testCaseVersion。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void externalizeLegacyTestCases() {
+        if (!testDataStore.isEnabled()) {
+            return;
+        }
+        int migrated = 0;
+        try {
+            List<TestCase> batch;
+            // 每批处理后这些记录的哈希不再为空，始终取第一页即可
+            while (!(batch = testCaseRepository.findByInputHashIsNull(PageRequest.of(0, 100))).isEmpty()) {
+                batch.forEach(testDataStore::externalize);
+                testCaseRepository.saveAll(batch);
+                migrated += batch.size();
+            }
+        } catch (RuntimeException e) {
+            log.error("旧测试用例迁移到测试数据存储失败，未迁移的仍从数据库读取", e);
+        }
+        if (migrated > 0) {
+            log.info("已将 {} 个旧测试用例迁移到测试数据存储", migrated);
         }
     }
 
@@ -172,6 +225,14 @@ public class ProblemServiceImpl implements ProblemService {
         return problemRepository.findAll(spec, pageable);
     }
 
+    // 测试用例变更后递增版本号，基于旧测试用例的评测结果缓存随之失效；测试用例缓存在事务提交后失效
+    private void bumpTestCaseVersion(Problem problem) {
+        int version = problem.getTestCaseVersion() != null ? problem.getTestCaseVersion() : 0;
+        problem.setTestCaseVersion(version + 1);
+        problemRepository.save(problem);
+        eventPublisher.publishEvent(new TestCaseCache.Invalidation(problem.getId(), version + 1));
+    }
+
     private void checkProblemOwnership(Problem problem) {
         User currentUser = userService.getCurrentUser();
         // 管理员可以管理所有题目
@@ -5,6 +5,8 @@ import com.CodeExamner.entity.*;
 import com.CodeExamner.entity.enums.ExamStatus;
 import com.CodeExamner.entity.enums.JudgeStatus;
 import com.CodeExamner.entity.enums.ProblemType;
+import com.CodeExamner.exception.BusinessException;
+import com.CodeExamner.judge.CompileGate;
 import com.CodeExamner.repository.SubmissionRepository;
 import com.CodeExamner.repository.ProblemRepository;
 import com.CodeExamner.repository.ExamRepository;
@@ -37,6 +39,9 @@ public class SubmissionServiceImpl implements SubmissionService {
     @Autowired
     private JudgeService judgeService;
 
+    @Autowired
+    private CompileGate compileGate;
+
     @Override
     public Submission submitCode(Submission submission) {
         User currentUser = userService.getCurrentUser();
@@ -62,11 +67,15 @@ public class SubmissionServiceImpl implements SubmissionService {
             submission.setExam(exam);
         }
 
+        if (problem.getType() == ProblemType.CODING) {
+            // 评测队列已满时直接拒绝，不保存无人评测的提交
+            judgeService.ensureCapacity();
+        }
         Submission saved = submissionRepository.save(submission);
 
-        // 编程题：走 Judge0 评测
+        // 编程题：先在本地做编译检查，通过后再走 Judge0 评测
         if (problem.getType() == ProblemType.CODING) {
-            judgeService.judgeSubmission(saved);
+            judgeCodingSubmission(saved);
         } else {
             // 选择题 / 填空题：本地比对标准答案，不依赖 Judge0
             gradeNonCodingSubmission(saved, problem);
@@ -157,7 +166,37 @@ public class SubmissionServiceImpl implements SubmissionService {
         newSubmission.setLanguage(original.getLanguage());
         newSubmission.setStatus(JudgeStatus.PENDING);
 
-        return submissionRepository.save(newSubmission);
+        if (newSubmission.getProblem().getType() == ProblemType.CODING) {
+            judgeService.ensureCapacity();
+        }
+        Submission saved = submissionRepository.save(newSubmission);
+        if (saved.getProblem().getType() == ProblemType.CODING) {
+            // 代码与原提交相同，通常会直接命中编译检查缓存或评测结果缓存
+            judgeCodingSubmission(saved);
+        } else {
+            gradeNonCodingSubmission(saved, saved.getProblem());
+        }
+        return saved;
+    }
+
+    /**
+     * 编译不通过的代码直接判为编译错误，不占用评测服务；其余交给评测执行器。
+     * 保存前已检查过评测队列，并发提交仍被拒绝时把这条提交记为 SYSTEM_ERROR，不留下一直待评测的记录。
+     */
+    private void judgeCodingSubmission(Submission submission) {
+        String diagnostics = compileGate.check(submission.getLanguage(), submission.getCode());
+        if (diagnostics != null) {
+            judgeService.rejectCompilation(submission, diagnostics);
+            return;
+        }
+        try {
+            judgeService.judgeSubmission(submission);
+        } catch (BusinessException e) {
+            submission.setStatus(JudgeStatus.SYSTEM_ERROR);
+            submission.setScore(0);
+            submissionRepository.save(submission);
+            throw e;
+        }
     }
 
     /**
@@ -0,0 +1,41 @@
+// util/SourceHashUtil.java
+package com.CodeExamner.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public class SourceHashUtil {
+
+    /**
+     * 规范化源码：统一换行符、去掉行尾空白和末尾空行。
+     * 这些差异不影响编译和运行结果，规范化后相同的代码视为同一份提交。
+     */
+    public static String normalize(String code) {
+        if (code == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(code.length());
+        for (String line : code.split("\\r\\n|\\r|\\n")) {
+            sb.append(line.stripTrailing()).append('\n');
+        }
+        return sb.toString().stripTrailing();
+    }
+
+    /**
+     * 对若干部分依次做 SHA-256，部分之间以 \0 分隔，返回十六进制字符串。
+     */
+    public static String sha256(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update((part != null ? part : "").getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
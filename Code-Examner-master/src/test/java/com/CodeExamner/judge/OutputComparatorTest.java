@@ -0,0 +1,146 @@
+package com.CodeExamner.judge;
+
+import com.CodeExamner.entity.enums.OutputCompareMode;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutputComparatorTest {
+
+    private static OutputComparator.Result compare(String expected, String actual, OutputCompareMode mode) {
+        return OutputComparator.compare(expected, actual, mode, null);
+    }
+
+    @Test
+    void exactRequiresIdenticalOutput() {
+        assertThat(compare("1 2\n3\n", "1 2\n3\n", OutputCompareMode.EXACT).matched()).isTrue();
+        assertThat(compare("1 2\n3\n", "1 2 \n3\n", OutputCompareMode.EXACT).matched()).isFalse();
+        assertThat(compare("1 2\n3\n", "1 2\n3", OutputCompareMode.EXACT).matched()).isFalse();
+    }
+
+    @Test
+    void exactTreatsCrlfAsDifferent() {
+        OutputComparator.Result result = compare("a\nb\n", "a\r\nb\r\n", OutputCompareMode.EXACT);
+
+        assertThat(result.matched()).isFalse();
+        assertThat(result.line()).isEqualTo(1);
+    }
+
+    @Test
+    void ignoreTrailingWhitespaceAcceptsCrlfAndTrailingSpaces() {
+        assertThat(compare("a\nb\n", "a\r\nb\r\n", OutputCompareMode.IGNORE_TRAILING_WHITESPACE).matched()).isTrue();
+        assertThat(compare("a b\nc", "a b \t\nc   ", OutputCompareMode.IGNORE_TRAILING_WHITESPACE).matched()).isTrue();
+    }
+
+    @Test
+    void ignoreTrailingWhitespaceDropsTrailingBlankLinesOnly() {
+        assertThat(compare("a\nb", "a\nb\n\n\n  \n", OutputCompareMode.IGNORE_TRAILING_WHITESPACE).matched()).isTrue();
+        assertThat(compare("a\nb\n\n\n", "a\nb", OutputCompareMode.IGNORE_TRAILING_WHITESPACE).matched()).isTrue();
+        // 中间的空行和行首缩进仍然要比较
+        assertThat(compare("a\n\nb", "a\nb", OutputCompareMode.IGNORE_TRAILING_WHITESPACE).matched()).isFalse();
+        assertThat(compare("a\n b", "a\nb", OutputCompareMode.IGNORE_TRAILING_WHITESPACE).matched()).isFalse();
+    }
+
+    @Test
+    void nullModeDefaultsToIgnoreTrailingWhitespace() {
+        assertThat(compare("a\n", "a  \r\n\n", null).matched()).isTrue();
+    }
+
+    @Test
+    void ignoreCaseComparesLettersCaseInsensitively() {
+        assertThat(compare("Yes\nNO\n", "yes \nno", OutputCompareMode.IGNORE_CASE).matched()).isTrue();
+        assertThat(compare("Yes", "Yep", OutputCompareMode.IGNORE_CASE).matched()).isFalse();
+        assertThat(compare("Yes", "yes", OutputCompareMode.IGNORE_TRAILING_WHITESPACE).matched()).isFalse();
+    }
+
+    @Test
+    void mismatchReportsLineAndBothSides() {
+        OutputComparator.Result result = compare("1\n2\n3\n", "1\n5\n3\n", OutputCompareMode.EXACT);
+
+        assertThat(result.line()).isEqualTo(2);
+        assertThat(result.expectedLine()).isEqualTo("2");
+        assertThat(result.actualLine()).isEqualTo("5");
+        assertThat(result.describe()).isEqualTo("第 2 行不一致：期望 \"2\"，实际 \"5\"");
+    }
+
+    @Test
+    void missingAndExtraLinesPointAtTheFirstUnmatchedLine() {
+        OutputComparator.Result missing = compare("1\n2\n", "1\n", OutputCompareMode.IGNORE_TRAILING_WHITESPACE);
+        assertThat(missing.line()).isEqualTo(2);
+        assertThat(missing.expectedLine()).isEqualTo("2");
+        assertThat(missing.actualLine()).isNull();
+
+        OutputComparator.Result extra = compare("1\n", "1\n2\n", OutputCompareMode.IGNORE_TRAILING_WHITESPACE);
+        assertThat(extra.line()).isEqualTo(2);
+        assertThat(extra.expectedLine()).isNull();
+        assertThat(extra.actualLine()).isEqualTo("2");
+    }
+
+    @Test
+    void longDifferingLineIsCutInTheReport() {
+        String expected = "x".repeat(1000);
+        String actual = "x".repeat(999) + "y";
+
+        OutputComparator.Result result = compare(expected, actual, OutputCompareMode.EXACT);
+
+        assertThat(result.matched()).isFalse();
+        assertThat(result.actualLine()).hasSize(203).endsWith("...");
+    }
+
+    @Test
+    void floatEpsilonIgnoresLayoutAndComparesNumbers() {
+        assertThat(compare("1.0 2.0\n3.0", "1.0\n2.0 3.0\n", OutputCompareMode.FLOAT_EPSILON).matched()).isTrue();
+        assertThat(compare("0.333333", "0.3333334", OutputCompareMode.FLOAT_EPSILON).matched()).isTrue();
+        assertThat(compare("abc 1", "abd 1", OutputCompareMode.FLOAT_EPSILON).matched()).isFalse();
+        assertThat(compare("1 2", "1 2 3", OutputCompareMode.FLOAT_EPSILON).matched()).isFalse();
+    }
+
+    @Test
+    void floatEpsilonBoundaryIsInclusive() {
+        // 选用二进制可精确表示的数，边界上的比较不受舍入影响
+        assertThat(OutputComparator.compare("1", "1.5", OutputCompareMode.FLOAT_EPSILON, 0.5).matched()).isTrue();
+        assertThat(OutputComparator.compare("1", "0.5", OutputCompareMode.FLOAT_EPSILON, 0.5).matched()).isTrue();
+        assertThat(OutputComparator.compare("1", "1.5000001", OutputCompareMode.FLOAT_EPSILON, 0.5).matched()).isFalse();
+    }
+
+    @Test
+    void floatEpsilonIsRelativeAboveOne() {
+        // 期望值为 64 时允许 64 * 0.125 = 8 的误差
+        assertThat(OutputComparator.compare("64", "72", OutputCompareMode.FLOAT_EPSILON, 0.125).matched()).isTrue();
+        assertThat(OutputComparator.compare("-64", "-56", OutputCompareMode.FLOAT_EPSILON, 0.125).matched()).isTrue();
+        assertThat(OutputComparator.compare("64", "72.001", OutputCompareMode.FLOAT_EPSILON, 0.125).matched()).isFalse();
+    }
+
+    @Test
+    void floatEpsilonDoesNotTreatNonDecimalTokensAsNumbers() {
+        assertThat(compare("NaN", "NaN", OutputCompareMode.FLOAT_EPSILON).matched()).isTrue();
+        assertThat(compare("1", "0x1", OutputCompareMode.FLOAT_EPSILON).matched()).isFalse();
+        assertThat(compare("1e3", "1000", OutputCompareMode.FLOAT_EPSILON).matched()).isTrue();
+    }
+
+    @Test
+    void overlongTokensAreComparedCharByChar() {
+        String token = "7".repeat(1000);
+
+        assertThat(compare(token, token, OutputCompareMode.FLOAT_EPSILON).matched()).isTrue();
+        assertThat(compare(token, token + "7", OutputCompareMode.FLOAT_EPSILON).matched()).isFalse();
+        assertThat(compare(token, "7".repeat(999) + "8", OutputCompareMode.FLOAT_EPSILON).matched()).isFalse();
+        // 超长 token 不按数值解析，数值上相等也不算一致
+        assertThat(compare("1", "1." + "0".repeat(300), OutputCompareMode.FLOAT_EPSILON).matched()).isFalse();
+    }
+
+    @Test
+    void overlongTokenFollowedByMoreTokens() {
+        String token = "a".repeat(256);
+
+        assertThat(compare(token + " 1.0", token + "\n1.0000001", OutputCompareMode.FLOAT_EPSILON).matched()).isTrue();
+        assertThat(compare(token + " 1", token + " 2", OutputCompareMode.FLOAT_EPSILON).matched()).isFalse();
+    }
+
+    @Test
+    void nullOutputsCompareAsEmpty() {
+        assertThat(compare(null, "", OutputCompareMode.EXACT).matched()).isTrue();
+        assertThat(compare("", "\n\n", OutputCompareMode.IGNORE_TRAILING_WHITESPACE).matched()).isTrue();
+        assertThat(compare("", "0", OutputCompareMode.FLOAT_EPSILON).matched()).isFalse();
+    }
+}
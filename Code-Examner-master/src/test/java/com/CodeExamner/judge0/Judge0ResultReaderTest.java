@@ -0,0 +1,205 @@
+package com.CodeExamner.judge0;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class Judge0ResultReaderTest {
+
+    private static Judge0ResultReader reader(int maxStdoutBytes, int maxStderrBytes) {
+        Judge0ResultReader reader = new Judge0ResultReader();
+        ReflectionTestUtils.setField(reader, "maxStdoutBytes", maxStdoutBytes);
+        ReflectionTestUtils.setField(reader, "maxStderrBytes", maxStderrBytes);
+        return reader;
+    }
+
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // 每次最多返回一个字节，让字段和 base64 分组跨越多次读取
+    private static InputStream trickle(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+    }
+
+    @Test
+    void readsScalarFieldsAndStatus() throws IOException {
+        Judge0Result result = reader(1024, 1024).readResult(body("""
+                {"token": "0f8fad5b-d9cb-469f-a165-70867728950e", "status": {"id": 3, "description": "Accepted"},
+                 "time": "0.012", "memory": 3456.0, "exit_code": 0, "exit_signal": null,
+                 "extra": {"nested": [1, {"a": "b"}], "flag": true}, "stdout": "ok\\n"}
+                """), false);
+
+        assertThat(result.getToken()).isEqualTo("0f8fad5b-d9cb-469f-a165-70867728950e");
+        assertThat(result.getStatus().getId()).isEqualTo(3);
+        assertThat(result.getStatus().getDescription()).isEqualTo("Accepted");
+        assertThat(result.getTime()).isEqualTo("0.012");
+        assertThat(result.getMemory()).isEqualTo(3456.0);
+        assertThat(result.getExitCode()).isZero();
+        assertThat(result.getExitSignal()).isNull();
+        assertThat(result.getStdout()).isEqualTo("ok\n");
+        assertThat(result.getStdoutTruncated()).isFalse();
+        assertThat(result.getStdoutSize()).isEqualTo(3);
+    }
+
+    @Test
+    void stdoutOverTheLimitIsTruncatedWithTheOriginalSize() throws IOException {
+        Judge0Result result = reader(8, 1024).readResult(body("{\"stdout\": \"0123456789\"}"), false);
+
+        assertThat(result.getStdout()).isEqualTo("01234567");
+        assertThat(result.getStdoutSize()).isEqualTo(10);
+        assertThat(result.getStdoutTruncated()).isTrue();
+    }
+
+    @Test
+    void stdoutExactlyAtTheLimitIsNotTruncated() throws IOException {
+        Judge0Result result = reader(8, 1024).readResult(body("{\"stdout\": \"01234567\"}"), false);
+
+        assertThat(result.getStdout()).isEqualTo("01234567");
+        assertThat(result.getStdoutTruncated()).isFalse();
+    }
+
+    @Test
+    void truncationCountsUtf8BytesAndKeepsWholeCharacters() throws IOException {
+        // 每个 é 占 2 字节，上限 7 字节时只能完整保留 3 个
+        Judge0Result result = reader(7, 1024).readResult(body("{\"stdout\": \"ééééé\"}"), false);
+
+        assertThat(result.getStdout()).isEqualTo("ééé");
+        assertThat(result.getStdoutSize()).isEqualTo(10);
+        assertThat(result.getStdoutTruncated()).isTrue();
+    }
+
+    @Test
+    void surrogatePairIsKeptOrDroppedAsAWhole() throws IOException {
+        // 😀 为代理对，UTF-8 下占 4 字节
+        Judge0Result dropped = reader(8, 1024).readResult(body("{\"stdout\": \"abcdefg\\ud83d\\ude00\"}"), false);
+        assertThat(dropped.getStdout()).isEqualTo("abcdefg");
+        assertThat(dropped.getStdoutSize()).isEqualTo(11);
+        assertThat(dropped.getStdoutTruncated()).isTrue();
+
+        Judge0Result kept = reader(8, 1024).readResult(body("{\"stdout\": \"abcd\\ud83d\\ude00\"}"), false);
+        assertThat(kept.getStdout()).isEqualTo("abcd😀");
+        assertThat(kept.getStdoutTruncated()).isFalse();
+    }
+
+    @Test
+    void stderrUsesItsOwnLimit() throws IOException {
+        Judge0Result result = reader(1024, 4).readResult(body("""
+                {"stderr": "Exception in thread", "compile_output": "error: x", "message": "Exited"}
+                """), false);
+
+        assertThat(result.getStderr()).isEqualTo("Exce");
+        assertThat(result.getStderrSize()).isEqualTo(19);
+        assertThat(result.getStderrTruncated()).isTrue();
+        assertThat(result.getCompileOutput()).isEqualTo("erro");
+        assertThat(result.getMessage()).isEqualTo("Exit");
+    }
+
+    @Test
+    void decodesEscapes() throws IOException {
+        Judge0Result result = reader(1024, 1024).readResult(body("""
+                {"stdout": "\\u00e9\\u4E2D \\"q\\" \\\\ \\/ \\t\\r\\n"}
+                """), false);
+
+        String expected = "é中 \"q\" \\ / \t\r\n";
+        assertThat(result.getStdout()).isEqualTo(expected);
+        assertThat(result.getStdoutSize()).isEqualTo(expected.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    void nullTextFieldsStayNull() throws IOException {
+        Judge0Result result = reader(1024, 1024).readResult(body("{\"stdout\": null, \"stderr\": null, \"status\": null}"), false);
+
+        assertThat(result.getStdout()).isNull();
+        assertThat(result.getStdoutTruncated()).isNull();
+        assertThat(result.getStderr()).isNull();
+        assertThat(result.getStatus()).isNull();
+    }
+
+    @Test
+    void decodesBase64AcrossLineBreaksAndReadBoundaries() throws IOException {
+        // 超过解析缓冲区（8192 个字符）的内容，含多字节字符；Judge0 每 60 个字符插入一个换行
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() < 12_000; i++) {
+            text.append("第").append(i).append(" line ").append(i * 7).append('\n');
+        }
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        String encoded = Base64.getMimeEncoder(60, "\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(bytes)
+                .replace("\n", "\\n");
+
+        Judge0Result result = reader(1 << 20, 1024).readResult(trickle("{\"stdout\": \"" + encoded + "\"}"), true);
+
+        assertThat(result.getStdout()).isEqualTo(text.toString());
+        assertThat(result.getStdoutSize()).isEqualTo(bytes.length);
+        assertThat(result.getStdoutTruncated()).isFalse();
+    }
+
+    @Test
+    void base64WithPaddingAndTruncation() throws IOException {
+        // "hello world" 编码后以 = 结尾
+        String encoded = Base64.getEncoder().encodeToString("hello world".getBytes(StandardCharsets.UTF_8));
+
+        Judge0Result full = reader(1024, 1024).readResult(body("{\"stdout\": \"" + encoded + "\"}"), true);
+        assertThat(full.getStdout()).isEqualTo("hello world");
+        assertThat(full.getStdoutSize()).isEqualTo(11);
+
+        Judge0Result cut = reader(5, 1024).readResult(body("{\"stdout\": \"" + encoded + "\"}"), true);
+        assertThat(cut.getStdout()).isEqualTo("hello");
+        assertThat(cut.getStdoutSize()).isEqualTo(11);
+        assertThat(cut.getStdoutTruncated()).isTrue();
+    }
+
+    @Test
+    void invalidBase64IsKeptAsRawText() throws IOException {
+        Judge0Result result = reader(1024, 1024).readResult(body("{\"message\": \"not base64!\"}"), true);
+
+        assertThat(result.getMessage()).isEqualTo("not base64!");
+    }
+
+    @Test
+    void batchKeepsNullEntriesInPlace() throws IOException {
+        List<Judge0Result> results = reader(1024, 1024).readBatch(body("""
+                {"submissions": [
+                  {"token": "a", "status": {"id": 3, "description": "Accepted"}},
+                  null,
+                  {"token": "c", "status": {"id": 2, "description": "Processing"}}
+                ], "meta": {"total": 3}}
+                """), false);
+
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).getToken()).isEqualTo("a");
+        assertThat(results.get(1)).isNull();
+        assertThat(results.get(2).getStatus().isFinished()).isFalse();
+    }
+
+    @Test
+    void emptyBatch() throws IOException {
+        assertThat(reader(1024, 1024).readBatch(body("{\"submissions\": []}"), false)).isEmpty();
+    }
+
+    @Test
+    void batchWithoutSubmissionsIsRejected() {
+        assertThatThrownBy(() -> reader(1024, 1024).readBatch(body("{\"error\": \"not found\"}"), false))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void truncatedBodyIsRejected() {
+        assertThatThrownBy(() -> reader(1024, 1024).readResult(body("{\"stdout\": \"abc"), false))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}